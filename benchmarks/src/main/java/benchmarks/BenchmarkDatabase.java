@@ -0,0 +1,101 @@
+package benchmarks;
+
+import dao.DBConnection;
+import dao.DatabaseInitializer;
+import dao.DatasetGenerator;
+import dao.PharmacyDAO;
+import dao.UnitOfWork;
+import models.Pharmacy;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BenchmarkDatabase - A throwaway database seeded with a fixed number of medicines, shared by the benchmarks.
+ * The rows come from DatasetGenerator with a fixed seed, so every run and every fork measures the same data:
+ * one pharmacy per ~200 stock lines, Zipfian product popularity, and as many invoice lines as stock lines.
+ * Stock is then raised so that sale benchmarks never run a line dry.
+ *
+ * DBConnection reads pharmapoint.db.path once per JVM, so a JVM can only hold one dataset size. JMH runs
+ * every @Param combination in its own fork, which is what makes this work; don't run with -f 0.
+ */
+public final class BenchmarkDatabase {
+
+    static final long SEED = 20240611L;
+    static final int STOCK_QUANTITY = 1_000_000_000;       // enough that sale benchmarks never run a line dry
+    private static final int MEDICINES_PER_PHARMACY = 200;
+
+    private static BenchmarkDatabase current;
+
+    private final int medicineCount;
+    private final List<Pharmacy> pharmacies = new ArrayList<>();
+    private final List<String> productNames = new ArrayList<>();     // trade names, as searched
+
+    private BenchmarkDatabase(int medicineCount) {
+        this.medicineCount = medicineCount;
+    }
+
+    // The database of this JVM, created and seeded on first use
+    public static synchronized BenchmarkDatabase open(int medicineCount) throws IOException, SQLException {
+        if (current != null) {
+            if (current.medicineCount != medicineCount) {
+                throw new IllegalStateException("This JVM already holds " + current.medicineCount
+                        + " medicines; each dataset size needs its own fork (don't use -f 0)");
+            }
+            return current;
+        }
+        File database = File.createTempFile("pharmapoint-benchmark-" + medicineCount + "-", ".db");
+        database.deleteOnExit();
+        System.setProperty("pharmapoint.db.path", database.getAbsolutePath());
+        DatabaseInitializer.initialize();
+
+        BenchmarkDatabase seeded = new BenchmarkDatabase(medicineCount);
+        long started = System.nanoTime();
+        seeded.seed();
+        System.out.printf("Seeded %d medicines in %d pharmacies in %d ms (%s)%n", medicineCount,
+                seeded.pharmacies.size(), (System.nanoTime() - started) / 1_000_000, database);
+        current = seeded;
+        return seeded;
+    }
+
+    public static synchronized void close() {
+        DBConnection.shutdown();
+    }
+
+    private void seed() throws SQLException {
+        int pharmacyCount = Math.max(1, (medicineCount + MEDICINES_PER_PHARMACY - 1) / MEDICINES_PER_PHARMACY);
+        int products = Math.max(MEDICINES_PER_PHARMACY * 2, medicineCount / 20);
+        // as many invoice lines as stock lines, so the invoice tables aren't empty when checkout writes to them
+        DatasetGenerator generator = new DatasetGenerator(new DatasetGenerator.Scale(pharmacyCount, medicineCount,
+                medicineCount, 1_000, products, 365), SEED);
+        generator.generate();
+
+        try (UnitOfWork work = UnitOfWork.begin();
+             PreparedStatement pstmt = work.getConnection().prepareStatement("UPDATE medicines SET quantity = ?")) {
+            pstmt.setInt(1, STOCK_QUANTITY);
+            pstmt.executeUpdate();
+            work.commit();
+        }
+        pharmacies.addAll(new PharmacyDAO().getPharmacies());
+        // the popular tenth of the catalog, what patients search for and what most pharmacies stock
+        List<String> tradeNames = generator.getTradeNames();
+        productNames.addAll(tradeNames.subList(0, Math.max(1, tradeNames.size() / 10)));
+    }
+
+    public int getMedicineCount() {
+        return medicineCount;
+    }
+
+    public List<Pharmacy> getPharmacies() {
+        return pharmacies;
+    }
+
+    // Popular trade names as a patient would type them ("Loxaren"), each stocked in many pharmacies
+    public List<String> getProductNames() {
+        return productNames;
+    }
+}
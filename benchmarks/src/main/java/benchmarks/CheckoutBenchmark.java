@@ -0,0 +1,150 @@
+package benchmarks;
+
+import dao.InvoiceDAO;
+import dao.MedicineDAO;
+import dao.UnitOfWork;
+import models.Invoice;
+import models.Medicine;
+import models.Pharmacy;
+import models.SaleItem;
+import org.openjdk.jmh.annotations.*;
+import services.InvoiceService;
+import services.MedicineService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CheckoutBenchmark - The two writes of a sale: taking the lines out of stock and saving the invoice.
+ * Carts rotate through pharmacies and products picked with a fixed seed. Stock is seeded high enough that
+ * no sale ever comes back with shortfalls; every invocation commits, so the invoice tables grow during a run.
+ *
+ * checkoutOneTransaction and checkoutLineByLine are the whole sale, side by side, in sales per second:
+ * InvoiceService.checkout with stock, invoice and render job on one commit, against the path it replaced,
+ * kept here as a copy: every line read with getMedicineById and written back with a full-row updateMedicine,
+ * each on its own connection (2N connections for N lines), then saveInvoice. The one-transaction side stops at
+ * the commit and leaves out the render queue hand-off, since the old path never wrote the file either and a
+ * background render would only steal CPU from the measurement.
+ *
+ *   java -jar benchmarks/target/benchmarks.jar CheckoutBenchmark -p medicines=1000 -p items=5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckoutBenchmark {
+
+    private static final int CARTS = 64;
+    private static final int CART_PHARMACIES = 16;
+
+    @Param({"1000", "10000", "100000"})
+    public int medicines;
+
+    @Param({"5", "20"})
+    public int items;       // lines per sale
+
+    private final InvoiceDAO invoiceDAO = new InvoiceDAO();
+    private final MedicineDAO medicineDAO = new MedicineDAO();
+    private final InvoiceService invoiceService = new InvoiceService();
+    private final MedicineService medicineService = new MedicineService();
+    private final List<Pharmacy> cartPharmacies = new ArrayList<>();
+    private final List<List<SaleItem>> carts = new ArrayList<>();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        List<Pharmacy> pharmacies = BenchmarkDatabase.open(medicines).getPharmacies();
+        Random random = new Random(BenchmarkDatabase.SEED);
+        List<List<Medicine>> stock = new ArrayList<>();
+        for (int i = 0; i < Math.min(CART_PHARMACIES, pharmacies.size()); i++) {
+            stock.add(medicineDAO.getMedicinesByPharmacyId(pharmacies.get(i).getId()));
+        }
+        for (int i = 0; i < CARTS; i++) {
+            int pharmacy = i % stock.size();
+            List<Medicine> shelf = new ArrayList<>(stock.get(pharmacy));
+            List<SaleItem> cart = new ArrayList<>(items);
+            for (int j = 0; j < items && !shelf.isEmpty(); j++) {
+                cart.add(new SaleItem(shelf.remove(random.nextInt(shelf.size())), 1 + random.nextInt(3)));
+            }
+            cartPharmacies.add(pharmacies.get(pharmacy));
+            carts.add(cart);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public boolean saveInvoice() {
+        return invoiceDAO.saveInvoice(nextInvoice());
+    }
+
+    @Benchmark
+    public MedicineService.SaleResult sellMedicines() {
+        MedicineService.SaleResult result = medicineService.sellMedicines(carts.get(nextCart()));
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Sale failed, the numbers would be meaningless: " + result.getMessage());
+        }
+        return result;
+    }
+
+    // InvoiceService.checkout up to its commit: one connection, one commit for the whole sale
+    @Benchmark
+    public InvoiceService.CheckoutResult checkoutOneTransaction() throws Exception {
+        Invoice invoice = nextInvoice();
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            InvoiceService.CheckoutResult result = invoiceService.checkout(work.getConnection(), invoice);
+            if (!result.isSuccess()) {
+                throw new IllegalStateException("Checkout failed, the numbers would be meaningless: " + result.getMessage());
+            }
+            work.commit();
+            medicineService.onSaleCommitted(invoice.getItems());
+            return result;
+        }
+    }
+
+    // The path checkout replaced: line-by-line stock updates, then the invoice on a transaction of its own
+    @Benchmark
+    public boolean checkoutLineByLine() {
+        Invoice invoice = nextInvoice();
+        if (!sellLineByLine(invoice.getItems())) {
+            throw new IllegalStateException("Sale failed, the numbers would be meaningless");
+        }
+        return invoiceDAO.saveInvoice(invoice);
+    }
+
+    // Copy of MedicineService.sellMedicines as it was before batching: read each medicine, write the whole
+    // row back with the new quantity, every statement on its own pooled connection in autocommit
+    private boolean sellLineByLine(List<SaleItem> saleItems) {
+        for (SaleItem item : saleItems) {
+            Medicine medicine = medicineDAO.getMedicineById(item.getMedicine().getId());
+            if (medicine == null) {
+                return false;
+            }
+            medicine.setQuantity(medicine.getQuantity() - item.getQuantity());
+            if (!medicineDAO.updateMedicine(medicine)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Invoice nextInvoice() {
+        int cart = nextCart();
+        Pharmacy pharmacy = cartPharmacies.get(cart);
+        return new Invoice(pharmacy.getId(), "Benchmark Patient", "01700000000",
+                carts.get(cart), pharmacy.getName(), pharmacy.getArea());
+    }
+
+    private int nextCart() {
+        int cart = next;
+        next = (cart + 1) % CARTS;
+        return cart;
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import models.Invoice;
+import models.Medicine;
+import models.SaleItem;
+import org.openjdk.jmh.annotations.*;
+import utils.PDFGenerator;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InvoiceFileBenchmark - PDFGenerator.generateInvoiceFile for invoices of different lengths, including
+ * the write to invoices/ under the working directory. The invoice keeps the same id and date, so every
+ * invocation replaces the same file instead of filling the disk. Needs no database.
+ *
+ *   java -jar benchmarks/target/benchmarks.jar InvoiceFileBenchmark -p items=300
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoiceFileBenchmark {
+
+    @Param({"5", "50", "300"})
+    public int items;       // lines on the invoice
+
+    private Invoice invoice;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(BenchmarkDatabase.SEED);
+        List<SaleItem> lines = new ArrayList<>(items);
+        double total = 0;
+        for (int i = 0; i < items; i++) {
+            Medicine medicine = new Medicine(i + 1, 1, "Medicine " + (i + 1) + " 500", "Generic " + (i + 1),
+                    "Brand " + (i % 8), 2 + random.nextInt(500) / 4.0, 100, "2027-06-28");
+            SaleItem line = new SaleItem(medicine, 1 + random.nextInt(5));
+            total += line.getSubtotal();
+            lines.add(line);
+        }
+        invoice = new Invoice(999_999, 1, "Benchmark Patient", "01700000000", total,
+                LocalDateTime.of(2024, 6, 11, 12, 0), lines);
+        invoice.setPharmacyName("Benchmark Pharmacy");
+        invoice.setPharmacyArea("Dhanmondi");
+    }
+
+    @Benchmark
+    public String generateInvoiceFile() {
+        String path = PDFGenerator.generateInvoiceFile(invoice, false);     // the console line would be part of the measurement
+        if (path == null) {
+            throw new IllegalStateException("Invoice file wasn't written");
+        }
+        return path;
+    }
+}
@@ -0,0 +1,85 @@
+package benchmarks;
+
+import models.Invoice;
+import models.Medicine;
+import models.SaleItem;
+import org.openjdk.jmh.annotations.*;
+import utils.PDFGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InvoiceRenderBenchmark - PDFGenerator.writeInvoice without the disk in the way: a small and a large
+ * (multi-page) invoice rendered into a channel that only counts bytes. The PDF size is printed at setup;
+ * bytes allocated per invoice come from the gc profiler (gc.alloc.rate.norm). Needs no database.
+ *
+ *   java -jar benchmarks/target/benchmarks.jar InvoiceRenderBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoiceRenderBenchmark {
+
+    @Param({"5", "300"})
+    public int items;       // lines on the invoice
+
+    private final CountingChannel sink = new CountingChannel();
+    private Invoice invoice;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<SaleItem> lines = new ArrayList<>(items);
+        double total = 0;
+        for (int i = 0; i < items; i++) {
+            Medicine medicine = new Medicine(i + 1, 1, "Paracetamol 500mg Tablet " + i, "Paracetamol",
+                    "Square Pharmaceuticals", 2.5 + i % 40, 100, "2027-01-01");
+            SaleItem line = new SaleItem(medicine, 1 + i % 5);
+            total += line.getSubtotal();
+            lines.add(line);
+        }
+        invoice = new Invoice(123_456, 1, "Benchmark Patient", "01700000000", total,
+                LocalDateTime.of(2024, 6, 11, 12, 0), lines);
+        invoice.setPharmacyName("City Pharmacy");
+        invoice.setPharmacyArea("Dhanmondi");
+
+        PDFGenerator.writeInvoice(invoice, sink);
+        System.out.printf("%d items: %,d bytes per PDF%n", items, sink.bytes);
+    }
+
+    @Benchmark
+    public long writeInvoice() throws IOException {
+        PDFGenerator.writeInvoice(invoice, sink);
+        return sink.bytes;
+    }
+
+    // Discards everything, only counts what would have been written
+    private static final class CountingChannel implements WritableByteChannel {
+        private long bytes;
+
+        @Override
+        public int write(ByteBuffer source) {
+            int remaining = source.remaining();
+            source.position(source.limit());
+            bytes += remaining;
+            return remaining;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
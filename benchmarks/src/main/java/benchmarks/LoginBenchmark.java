@@ -0,0 +1,102 @@
+package benchmarks;
+
+import dao.DBConnection;
+import dao.UserDAO;
+import models.User;
+import org.openjdk.jmh.annotations.*;
+import services.AuthService;
+import utils.PasswordHasher;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoginBenchmark - AuthService.authenticateUser at different PBKDF2 costs: a successful login, a wrong
+ * password, an unknown email, and the first login of a legacy plain-text row, which includes the rehash.
+ * Sample time mode, so the report carries p50/p99 next to the mean. Each cost runs in its own fork
+ * against the smallest benchmark dataset, with the account hashed at that cost.
+ *
+ *   java -jar benchmarks/target/benchmarks.jar LoginBenchmark -p iterations=310000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginBenchmark {
+
+    private static final int DATASET = 1_000;       // medicines; only the users table matters here
+    private static final String PASSWORD = "correct horse";
+
+    @Param({"100000", "310000", "600000"})
+    public int iterations;      // PBKDF2 cost
+
+    private final AuthService auth = new AuthService();
+    private String email;
+    private int unknown;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkDatabase.open(DATASET);
+        PasswordHasher.setIterations(iterations);
+        email = "bench-" + iterations + "@example.com";
+        if (!new UserDAO().save(new User("Benchmark", email, PASSWORD, "2000-01-01", "patient"))) {
+            throw new IllegalStateException("Couldn't create the benchmark account");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public User login() {
+        User user = auth.authenticateUser(email, PASSWORD);
+        if (user == null) {
+            throw new IllegalStateException("Login failed, the numbers would be meaningless");
+        }
+        return user;
+    }
+
+    @Benchmark
+    public User wrongPassword() {
+        return auth.authenticateUser(email, "wrong horse");
+    }
+
+    @Benchmark
+    public User unknownEmail() {
+        return auth.authenticateUser("nobody-" + unknown++ + "@example.com", PASSWORD);
+    }
+
+    @Benchmark
+    public User legacyLogin(LegacyAccount account) {
+        User user = auth.authenticateUser(account.email, "old password");
+        if (user == null) {
+            throw new IllegalStateException("Legacy login failed, the numbers would be meaningless");
+        }
+        return user;
+    }
+
+    // A fresh plain-text row for every invocation, the way accounts were stored before passwords were
+    // hashed at all; its first login verifies and rehashes it, later ones would be ordinary logins
+    @State(Scope.Thread)
+    public static class LegacyAccount {
+        private int next;
+        String email;
+
+        @Setup(Level.Invocation)
+        public void insert() throws SQLException {
+            email = "legacy-" + next++ + "@example.com";
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(
+                         "INSERT INTO users(name, email, password, dateOfBirth, role) VALUES ('Legacy', ?, 'old password', '2000-01-01', 'patient')")) {
+                pstmt.setString(1, email);
+                pstmt.executeUpdate();
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package benchmarks;
+
+import dao.DBConnection;
+import dao.MedicineDAO;
+import models.Medicine;
+import models.PharmacyMatch;
+import org.openjdk.jmh.annotations.*;
+import services.PharmacySearchService;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SearchBenchmark - The patient-side searches: one name, a prescription's worth of names, and the ranked
+ * pharmacy list built on top of it. Queries rotate through a fixed set of stocked product names so no
+ * single FTS term gets measured alone.
+ *
+ * The *Like methods run the queries these searches replaced (substring LIKE over name and generic_name,
+ * a full table scan) on the same data, as the baseline the FTS index is measured against. Seeding the
+ * 1000000 size takes under a minute per fork.
+ *
+ *   java -jar benchmarks/target/benchmarks.jar SearchBenchmark -p medicines=10000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int QUERIES = 64;
+    private static final int PRESCRIPTION_SIZE = 5;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int medicines;
+
+    private final MedicineDAO medicineDAO = new MedicineDAO();
+    private final PharmacySearchService searchService = new PharmacySearchService();
+    private final List<String> names = new ArrayList<>();
+    private final List<List<String>> prescriptions = new ArrayList<>();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        List<String> products = BenchmarkDatabase.open(medicines).getProductNames();
+        Random random = new Random(BenchmarkDatabase.SEED);
+        for (int i = 0; i < QUERIES; i++) {
+            names.add(products.get(random.nextInt(products.size())));
+            List<String> prescription = new ArrayList<>(PRESCRIPTION_SIZE);
+            for (int j = 0; j < PRESCRIPTION_SIZE; j++) {
+                prescription.add(products.get(random.nextInt(products.size())));
+            }
+            prescriptions.add(prescription);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public List<Medicine> searchMedicineByName() {
+        return medicineDAO.searchMedicineByName(names.get(nextQuery()));
+    }
+
+    @Benchmark
+    public List<PharmacyMatch> findPharmaciesWithMedicines() {
+        return medicineDAO.findPharmaciesWithMedicines(prescriptions.get(nextQuery()));
+    }
+
+    @Benchmark
+    public PharmacySearchService.PharmacySearchResult findPharmaciesForMedicines() {
+        return searchService.findPharmaciesForMedicines(prescriptions.get(nextQuery()));
+    }
+
+    @Benchmark
+    public List<Medicine> searchMedicineByNameLike() throws SQLException {
+        String search = "%" + names.get(nextQuery()) + "%";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM medicines WHERE name LIKE ? OR generic_name LIKE ?")) {
+            pstmt.setString(1, search);
+            pstmt.setString(2, search);
+            return readMedicines(pstmt);
+        }
+    }
+
+    @Benchmark
+    public List<Medicine> findPharmaciesWithMedicinesLike() throws SQLException {
+        List<String> prescription = prescriptions.get(nextQuery());
+        StringBuilder sql = new StringBuilder("SELECT p.id AS pharmacy_ref, p.user_id, p.name AS pharmacy_name, p.address, p.area, m.* "
+                + "FROM pharmacies p LEFT JOIN medicines m ON p.id = m.pharmacy_id WHERE m.quantity > 0 AND (");
+        for (int i = 0; i < prescription.size(); i++) {
+            sql.append(i > 0 ? " OR " : "").append("m.name LIKE ? OR m.generic_name LIKE ?");
+        }
+        sql.append(") ORDER BY p.name ASC");
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (String name : prescription) {
+                pstmt.setString(index++, "%" + name + "%");
+                pstmt.setString(index++, "%" + name + "%");
+            }
+            return readMedicines(pstmt);
+        }
+    }
+
+    private static List<Medicine> readMedicines(PreparedStatement pstmt) throws SQLException {
+        List<Medicine> medicines = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                medicines.add(new Medicine(rs.getInt("id"), rs.getInt("pharmacy_id"), rs.getString("name"),
+                        rs.getString("generic_name"), rs.getString("brand"), rs.getDouble("price"),
+                        rs.getInt("quantity"), rs.getString("expiry_date")));
+            }
+        }
+        return medicines;
+    }
+
+    // the benchmark state is shared, but the default single benchmark thread is the only one advancing it
+    private int nextQuery() {
+        int query = next;
+        next = (query + 1) % QUERIES;
+        return query;
+    }
+}
@@ -1,13 +1,25 @@
+import dao.DBConnection;
 import dao.DatabaseInitializer;
+import services.GroupCommitInvoiceWriter;
+import services.InvoiceRenderQueue;
+import services.SessionStore;
 import ui.UserAuthUI;
 
 import javax.swing.*;
 
 public class Main {
     public static void main(String[] args) {
+        DBConnection.warmUp();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            GroupCommitInvoiceWriter.shutdownShared();      // flush queued invoices before the pool goes away
+            InvoiceRenderQueue.shutdownShared();            // unfinished renders stay pending for the next start
+            SessionStore.shutdownShared();                  // writes last-seen times when sessions are persisted
+            DBConnection.shutdown();
+        }));
         DatabaseInitializer.initialize();
+        InvoiceRenderQueue.getShared().resumePending();     // invoice files a previous run didn't get to
         SwingUtilities.invokeLater(() -> {
             new UserAuthUI().setVisible(true);
         });
     }
-} 
+}
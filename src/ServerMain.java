@@ -0,0 +1,34 @@
+import dao.DBConnection;
+import dao.DatabaseInitializer;
+import server.ApiServer;
+import services.GroupCommitInvoiceWriter;
+import services.InvoiceRenderQueue;
+import services.SessionStore;
+
+import java.net.InetSocketAddress;
+
+// Headless entry point: the same services as Main, served as JSON over HTTP instead of Swing windows.
+// -Dpharmapoint.server.port (8080), .maxConcurrent (64), .acquireTimeoutMs (250), .queueCapacity (1024), .drainSeconds (10)
+public class ServerMain {
+    public static void main(String[] args) throws Exception {
+        int port = Integer.getInteger("pharmapoint.server.port", 8080);
+        int drainSeconds = Integer.getInteger("pharmapoint.server.drainSeconds", 10);
+
+        DBConnection.warmUp();
+        DatabaseInitializer.initialize();
+        InvoiceRenderQueue.getShared().resumePending();     // invoice files a previous run didn't get to
+
+        ApiServer server = new ApiServer(new InetSocketAddress(port),
+                Integer.getInteger("pharmapoint.server.maxConcurrent", 64),
+                Long.getLong("pharmapoint.server.acquireTimeoutMs", 250L),
+                Integer.getInteger("pharmapoint.server.queueCapacity", 1024));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(drainSeconds);                      // finish running requests first, they may still write
+            GroupCommitInvoiceWriter.shutdownShared();
+            InvoiceRenderQueue.shutdownShared();
+            SessionStore.shutdownShared();
+            DBConnection.shutdown();
+        }));
+        server.start();
+    }
+}
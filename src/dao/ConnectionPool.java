@@ -0,0 +1,455 @@
+package dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ConnectionPool - Bounded pool of physical SQLite connections shared by all DAOs.
+ * Callers get a proxy whose close() hands the connection back to the pool instead of closing it,
+ * so the existing try-with-resources blocks in the DAOs keep working unchanged.
+ */
+public class ConnectionPool {
+
+    // Opens a brand-new physical connection, DBConnection supplies this
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final Config config;
+    private final ConnectionFactory factory;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();    //most recently used at the head
+    private final Map<PooledConnection, Lease> leases = new ConcurrentHashMap<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    // Metrics
+    private final AtomicLong connectionsCreated = new AtomicLong();
+    private final AtomicLong connectionsEvicted = new AtomicLong();
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong acquireTimeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong failedHealthChecks = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+
+    public ConnectionPool(Config config, ConnectionFactory factory) {
+        this.config = config;
+        this.factory = factory;
+        this.permits = new Semaphore(config.maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pharmapoint-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::runHousekeeping,
+                config.housekeepingIntervalMs, config.housekeepingIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Opens connections up to minIdle so the first queries don't pay the open cost
+    public void warmUp() {
+        int missing = config.minIdle - idle.size() - leases.size();
+        for (int i = 0; i < missing; i++) {
+            try {
+                idle.offerLast(openPhysical());
+            } catch (SQLException e) {
+                System.err.println("Could not pre-warm database connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    public Connection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(config.acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        if (!acquired) {
+            acquireTimeouts.incrementAndGet();
+            throw new SQLException("Timed out after " + config.acquireTimeoutMs
+                    + " ms waiting for a database connection (pool size " + config.maxSize + ")");
+        }
+
+        try {
+            PooledConnection pooled = takeHealthyConnection();
+            Lease lease = new Lease(config.captureLeakStackTraces ? new Throwable("Connection acquired here") : null);
+            leases.put(pooled, lease);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeHealthyConnection() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isHealthy(pooled)) {
+                return pooled;
+            }
+            failedHealthChecks.incrementAndGet();
+            closeQuietly(pooled);
+        }
+        return openPhysical();
+    }
+
+    // Only connections that sat idle for a while are validated, recently used ones are trusted
+    private boolean isHealthy(PooledConnection pooled) {
+        long idleFor = System.currentTimeMillis() - pooled.lastReturnedAt;
+        if (idleFor < config.validationIntervalMs) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(config.validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection openPhysical() throws SQLException {
+        Connection physical = factory.create();
+        if (physical == null) {
+            throw new SQLException("Connection factory returned no connection");
+        }
+        connectionsCreated.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    // Called by the proxy's close()
+    private void release(PooledConnection pooled) {
+        leases.remove(pooled);
+        try {
+            boolean reusable = !closed && idle.size() < config.maxSize && pooled.resetForReuse();
+            if (reusable) {
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            } else {
+                closeQuietly(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void runHousekeeping() {
+        try {
+            evictIdleConnections();
+            detectLeaks();
+            if (!closed) {
+                warmUp();
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Connection pool housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    // Oldest idle connections sit at the tail, close them while we are above minIdle
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        while (idle.size() > config.minIdle) {
+            PooledConnection oldest = idle.peekLast();
+            if (oldest == null || now - oldest.lastReturnedAt < config.idleTimeoutMs) {
+                break;
+            }
+            if (idle.removeLastOccurrence(oldest)) {
+                connectionsEvicted.incrementAndGet();
+                closeQuietly(oldest);
+            }
+        }
+    }
+
+    private void detectLeaks() {
+        if (config.leakThresholdMs <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Lease lease : leases.values()) {
+            if (!lease.reported && now - lease.acquiredAt > config.leakThresholdMs) {
+                lease.reported = true;
+                leaksDetected.incrementAndGet();
+                System.err.println("Possible connection leak: connection held for "
+                        + (now - lease.acquiredAt) + " ms");
+                if (lease.acquiredBy != null) {
+                    lease.acquiredBy.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        acquireCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    public PoolStats getStats() {
+        long acquires = acquireCount.get();
+        return new PoolStats(
+                config.maxSize,
+                leases.size(),
+                idle.size(),
+                connectionsCreated.get(),
+                connectionsEvicted.get(),
+                acquires,
+                acquireTimeouts.get(),
+                acquires == 0 ? 0.0 : totalWaitNanos.get() / (double) acquires / 1_000_000.0,
+                maxWaitNanos.get() / 1_000_000.0,
+                failedHealthChecks.get(),
+                leaksDetected.get());
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled);
+        }
+    }
+
+    private static void closeQuietly(PooledConnection pooled) {
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    // Bookkeeping for a checked-out connection, used by leak detection
+    private static class Lease {
+        private final long acquiredAt = System.currentTimeMillis();
+        private final Throwable acquiredBy;
+        private volatile boolean reported;
+
+        Lease(Throwable acquiredBy) {
+            this.acquiredBy = acquiredBy;
+        }
+    }
+
+    // One physical connection plus the statements opened on it during the current lease
+    private class PooledConnection {
+        private final Connection physical;
+        private final List<Statement> openStatements = new ArrayList<>();
+        private volatile long lastReturnedAt = System.currentTimeMillis();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+
+        // DAOs don't always close their statements, so close them here before the next borrower
+        boolean resetForReuse() {
+            try {
+                for (Statement statement : openStatements) {
+                    if (!statement.isClosed()) {
+                        statement.close();
+                    }
+                }
+                openStatements.clear();
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                return !physical.isClosed();
+            } catch (SQLException e) {
+                System.err.println("Discarding pooled connection: " + e.getMessage());
+                return false;
+            }
+        }
+
+        void trackStatement(Statement statement) {
+            Iterator<Statement> iterator = openStatements.iterator();
+            while (iterator.hasNext()) {
+                try {
+                    if (iterator.next().isClosed()) {
+                        iterator.remove();
+                    }
+                } catch (SQLException e) {
+                    iterator.remove();
+                }
+            }
+            openStatements.add(statement);
+        }
+    }
+
+    // The Connection handed to callers, close() returns it to the pool
+    private class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            Object result;
+            try {
+                result = method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement) {
+                pooled.trackStatement((Statement) result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Pool settings, read from -Dpharmapoint.pool.* system properties with sensible defaults.
+     */
+    public static class Config {
+        private final int minIdle;
+        private final int maxSize;
+        private final long acquireTimeoutMs;
+        private final long idleTimeoutMs;
+        private final long validationIntervalMs;
+        private final int validationTimeoutSeconds;
+        private final long leakThresholdMs;
+        private final boolean captureLeakStackTraces;
+        private final long housekeepingIntervalMs;
+
+        public Config(int minIdle, int maxSize, long acquireTimeoutMs, long idleTimeoutMs,
+                      long validationIntervalMs, int validationTimeoutSeconds,
+                      long leakThresholdMs, boolean captureLeakStackTraces, long housekeepingIntervalMs) {
+            if (maxSize < 1) {
+                throw new IllegalArgumentException("Pool maxSize must be at least 1");
+            }
+            this.minIdle = Math.max(0, Math.min(minIdle, maxSize));
+            this.maxSize = maxSize;
+            this.acquireTimeoutMs = acquireTimeoutMs;
+            this.idleTimeoutMs = idleTimeoutMs;
+            this.validationIntervalMs = validationIntervalMs;
+            this.validationTimeoutSeconds = validationTimeoutSeconds;
+            this.leakThresholdMs = leakThresholdMs;
+            this.captureLeakStackTraces = captureLeakStackTraces;
+            this.housekeepingIntervalMs = housekeepingIntervalMs;
+        }
+
+        public static Config fromSystemProperties() {
+            return new Config(
+                    Integer.getInteger("pharmapoint.pool.minIdle", 2),
+                    Integer.getInteger("pharmapoint.pool.maxSize", 8),
+                    Long.getLong("pharmapoint.pool.acquireTimeoutMs", 5_000L),
+                    Long.getLong("pharmapoint.pool.idleTimeoutMs", 300_000L),
+                    Long.getLong("pharmapoint.pool.validationIntervalMs", 30_000L),
+                    Integer.getInteger("pharmapoint.pool.validationTimeoutSeconds", 2),
+                    Long.getLong("pharmapoint.pool.leakThresholdMs", 60_000L),
+                    Boolean.getBoolean("pharmapoint.pool.leakStackTraces"),      //capturing a stack per acquire is not free
+                    Long.getLong("pharmapoint.pool.housekeepingIntervalMs", 15_000L));
+        }
+
+        public int getMinIdle() { return minIdle; }
+        public int getMaxSize() { return maxSize; }
+        public long getAcquireTimeoutMs() { return acquireTimeoutMs; }
+        public long getIdleTimeoutMs() { return idleTimeoutMs; }
+        public long getLeakThresholdMs() { return leakThresholdMs; }
+    }
+
+    public static class PoolStats {
+        private final int maxSize;
+        private final int active;
+        private final int idle;
+        private final long created;
+        private final long evicted;
+        private final long acquires;
+        private final long timeouts;
+        private final double averageWaitMs;
+        private final double maxWaitMs;
+        private final long failedHealthChecks;
+        private final long leaksDetected;
+
+        public PoolStats(int maxSize, int active, int idle, long created, long evicted, long acquires,
+                         long timeouts, double averageWaitMs, double maxWaitMs,
+                         long failedHealthChecks, long leaksDetected) {
+            this.maxSize = maxSize;
+            this.active = active;
+            this.idle = idle;
+            this.created = created;
+            this.evicted = evicted;
+            this.acquires = acquires;
+            this.timeouts = timeouts;
+            this.averageWaitMs = averageWaitMs;
+            this.maxWaitMs = maxWaitMs;
+            this.failedHealthChecks = failedHealthChecks;
+            this.leaksDetected = leaksDetected;
+        }
+
+        public int getMaxSize() { return maxSize; }
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public long getCreated() { return created; }
+        public long getEvicted() { return evicted; }
+        public long getAcquires() { return acquires; }
+        public long getTimeouts() { return timeouts; }
+        public double getAverageWaitMs() { return averageWaitMs; }
+        public double getMaxWaitMs() { return maxWaitMs; }
+        public long getFailedHealthChecks() { return failedHealthChecks; }
+        public long getLeaksDetected() { return leaksDetected; }
+
+        @Override
+        public String toString() {
+            return String.format("active=%d idle=%d max=%d created=%d evicted=%d acquires=%d timeouts=%d "
+                            + "avgWait=%.3fms maxWait=%.3fms failedChecks=%d leaks=%d",
+                    active, idle, maxSize, created, evicted, acquires, timeouts,
+                    averageWaitMs, maxWaitMs, failedHealthChecks, leaksDetected);
+        }
+    }
+}
@@ -4,49 +4,130 @@ import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Map;
 
 public class DBConnection {
     private static final String DB_DIR = "src/db";
     private static final String DB_FILE = "pharma.db";
+    private static final File DB_PATH;
     private static final String DB_URL;
-    
+
+    private static volatile ConnectionPool pool;
+    private static volatile SqliteSettings settings;
+
     static {
-        // Create absolute path for database
-        File currentDir = new File(System.getProperty("user.dir"));
-        File dbDir = new File(currentDir, DB_DIR);
-        File dbFile = new File(dbDir, DB_FILE);
-        DB_URL = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        // Create absolute path for database, a deployment can point somewhere else with -Dpharmapoint.db.path
+        String configuredPath = System.getProperty("pharmapoint.db.path");
+        if (configuredPath != null && !configuredPath.isBlank()) {
+            DB_PATH = new File(configuredPath).getAbsoluteFile();
+        } else {
+            File currentDir = new File(System.getProperty("user.dir"));
+            File dbDir = new File(currentDir, DB_DIR);
+            DB_PATH = new File(dbDir, DB_FILE);
+        }
+        DB_URL = "jdbc:sqlite:" + DB_PATH.getAbsolutePath();
     }
 
+    // Borrows a connection from the pool, closing it gives it back
     public static Connection getConnection() {
         try {
-            // Ensure the database directory exists
-            File dbDir = new File(System.getProperty("user.dir"), DB_DIR);
-            if (!dbDir.exists()) {
-                boolean created = dbDir.mkdirs();
-                if (created) {
-                    System.out.println("Created database directory: " + dbDir.getAbsolutePath());
-                } else {
-                    System.err.println("Failed to create database directory: " + dbDir.getAbsolutePath());
-                    throw new SQLException("Could not create database directory");
+            return getPool().acquire();
+        } catch (SQLException e) {
+            System.err.println("SQL error: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    // Opens the pool's minimum connections up front, called once from Main
+    public static void warmUp() {
+        getPool().warmUp();
+        System.out.println("Database connection pool ready for: " + DB_URL);
+        printSettingsReport();
+    }
+
+    public static ConnectionPool.PoolStats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DBConnection.class) {
+                current = pool;
+                if (current == null) {
+                    current = createPool();
+                    pool = current;
                 }
             }
+        }
+        return current;
+    }
+
+    // Directory check and driver loading happen once here instead of on every query
+    private static ConnectionPool createPool() {
+        File dbDir = DB_PATH.getParentFile();
+        if (!dbDir.exists()) {
+            if (dbDir.mkdirs()) {
+                System.out.println("Created database directory: " + dbDir.getAbsolutePath());
+            } else {
+                System.err.println("Failed to create database directory: " + dbDir.getAbsolutePath());
+            }
+        }
 
-            // Load the SQLite JDBC driver
+        try {
             Class.forName("org.sqlite.JDBC");
-            
-            // Create connection
-            Connection connection = DriverManager.getConnection(DB_URL);
-            System.out.println("Database connection established successfully to: " + DB_URL);
-            return connection;
-            
         } catch (ClassNotFoundException e) {
             System.err.println("Database connection failed: SQLite JDBC driver not found.");
             e.printStackTrace();
+        }
+
+        SqliteSettings sqliteSettings = getSettings();
+        return new ConnectionPool(ConnectionPool.Config.fromSystemProperties(), () -> {
+            Connection connection = DriverManager.getConnection(DB_URL);
+            try {
+                sqliteSettings.apply(connection);
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+            return connection;
+        });
+    }
+
+    private static SqliteSettings getSettings() {
+        SqliteSettings current = settings;
+        if (current == null) {
+            synchronized (DBConnection.class) {
+                current = settings;
+                if (current == null) {
+                    current = SqliteSettings.fromSystemProperties();
+                    settings = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Prints the pragmas SQLite actually runs with, so a misconfigured deployment is visible at startup
+    public static void printSettingsReport() {
+        try (Connection connection = getConnection()) {
+            if (connection == null) {
+                return;
+            }
+            System.out.println("SQLite profile: " + getSettings());
+            for (Map.Entry<String, String> pragma : SqliteSettings.readEffective(connection).entrySet()) {
+                System.out.println("  " + pragma.getKey() + " = " + pragma.getValue());
+            }
         } catch (SQLException e) {
-            System.err.println("SQL error: " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("Could not read SQLite settings: " + e.getMessage());
         }
-        return null;
     }
 }
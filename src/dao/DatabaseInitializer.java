@@ -79,9 +79,12 @@ public class DatabaseInitializer {
                 );
             """);
 
+            statement.close();
+
+            // indexes and every later schema change
+            SchemaMigrator.migrate(connection);
 
             System.out.println("Database initialized successfully.");
-            statement.close();
 
         } catch (SQLException e) {
             System.err.println("Couldnt initialize database: " + e.getMessage());
@@ -0,0 +1,677 @@
+package dao;
+
+import utils.PasswordHasher;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * DatasetGenerator - Fills a database with synthetic but realistic data for load tests and benchmarks:
+ * pharmacists and their pharmacies, stock, patients, and a sales history of invoices with their lines.
+ * The same seed, scale and end date always produce the same rows (only the password salt differs between
+ * runs): the sales history runs up to the end date, 2025-01-01 unless given, and expiry dates start from it.
+ *
+ * Popularity is Zipfian everywhere it is in real life: a few areas hold most pharmacies, a few pharmacies
+ * make most of the sales, a few products are stocked almost everywhere and sold on most invoices, and
+ * regular patients come back. Every generated account logs in with the password "pharmapoint".
+ *
+ * Rows go in through batched inserts, one transaction per chunk. The secondary indexes of the loaded tables
+ * and the FTS insert trigger are dropped for the load and rebuilt once at the end, which is several times
+ * faster than keeping them up to date row by row. Meant for an offline database: run it on a copy, not on
+ * the one a running app uses.
+ *
+ *   java -Dpharmapoint.db.path=load.db -cp out:src/lib/* dao.DatasetGenerator large
+ *   java -Dpharmapoint.db.path=load.db -cp out:src/lib/* dao.DatasetGenerator small medicines=200000 seed=7
+ *
+ * Tiers: small (100 pharmacies, 50k medicines, 500k invoice lines), medium (1k, 500k, 5M), large (10k, 5M, 50M).
+ * Overrides: pharmacies, medicines, lines, patients, products, days, seed, end (yyyy-mm-dd).
+ */
+public class DatasetGenerator {
+
+    public static final String PASSWORD = "pharmapoint";
+    private static final int CHUNK_ROWS = 50_000;
+    private static final double ZIPF_EXPONENT = 1.0;
+    private static final String[] LOADED_TABLES = {"medicines", "invoices", "invoice_items"};
+
+    // generic name, strength, typical price per unit in Taka
+    private static final Object[][] GENERICS = {
+            {"Paracetamol", "500 mg", 1.2}, {"Paracetamol", "665 mg", 2.0}, {"Omeprazole", "20 mg", 5.0},
+            {"Esomeprazole", "20 mg", 7.0}, {"Pantoprazole", "40 mg", 7.0}, {"Rabeprazole", "20 mg", 7.0},
+            {"Ranitidine", "150 mg", 2.5}, {"Fexofenadine", "120 mg", 8.0}, {"Cetirizine", "10 mg", 3.0},
+            {"Loratadine", "10 mg", 3.5}, {"Desloratadine", "5 mg", 5.0}, {"Montelukast", "10 mg", 16.0},
+            {"Amoxicillin", "500 mg", 6.5}, {"Azithromycin", "500 mg", 40.0}, {"Cefixime", "200 mg", 35.0},
+            {"Ciprofloxacin", "500 mg", 15.0}, {"Levofloxacin", "500 mg", 18.0}, {"Metronidazole", "400 mg", 1.5},
+            {"Doxycycline", "100 mg", 2.5}, {"Flucloxacillin", "500 mg", 8.0}, {"Cefuroxime", "500 mg", 50.0},
+            {"Metformin", "500 mg", 4.0}, {"Gliclazide", "80 mg", 8.0}, {"Glimepiride", "2 mg", 10.0},
+            {"Sitagliptin", "50 mg", 30.0}, {"Amlodipine", "5 mg", 5.0}, {"Losartan", "50 mg", 8.0},
+            {"Bisoprolol", "5 mg", 8.0}, {"Atenolol", "50 mg", 2.0}, {"Atorvastatin", "10 mg", 10.0},
+            {"Rosuvastatin", "10 mg", 15.0}, {"Clopidogrel", "75 mg", 12.0}, {"Aspirin", "75 mg", 0.8},
+            {"Diclofenac", "50 mg", 1.0}, {"Naproxen", "500 mg", 6.0}, {"Ibuprofen", "400 mg", 1.5},
+            {"Aceclofenac", "100 mg", 4.0}, {"Tramadol", "50 mg", 6.0}, {"Domperidone", "10 mg", 2.5},
+            {"Ondansetron", "8 mg", 10.0}, {"Loperamide", "2 mg", 2.0}, {"Calcium + Vitamin D", "500 mg", 8.0},
+            {"Vitamin B Complex", "", 1.0}, {"Folic Acid", "5 mg", 0.6}, {"Iron + Folic Acid", "", 2.0},
+            {"Zinc", "20 mg", 2.0}, {"Salbutamol", "4 mg", 0.7}, {"Prednisolone", "5 mg", 1.0},
+            {"Levothyroxine", "50 mcg", 2.5}, {"Alprazolam", "0.25 mg", 2.0}, {"Clonazepam", "0.5 mg", 5.0},
+            {"Sertraline", "50 mg", 6.0}, {"Escitalopram", "10 mg", 8.0}, {"Oral Rehydration Salt", "", 5.0},
+            {"Albendazole", "400 mg", 3.5}, {"Ivermectin", "6 mg", 10.0}, {"Fluconazole", "150 mg", 20.0},
+            {"Ketorolac", "10 mg", 10.0}, {"Tamsulosin", "0.4 mg", 10.0}, {"Vildagliptin", "50 mg", 25.0}};
+    private static final String[] MANUFACTURERS = {"Square", "Beximco", "Incepta", "Renata", "ACI", "Eskayef",
+            "Opsonin", "Healthcare", "Drug International", "Aristopharma", "General", "Radiant", "Popular",
+            "Ibn Sina", "Acme", "Navana", "UniMed", "Orion", "Sanofi", "Novartis"};
+    private static final String[] SYLLABLES = {"na", "pa", "ce", "lo", "xa", "mo", "ren", "fe", "ta", "zi", "vo",
+            "ri", "do", "sec", "tro", "cal", "mi", "nex", "be", "sol", "ros", "ly", "ga", "tor", "pan", "vi"};
+    private static final String[] AREAS = {"Mirpur", "Dhanmondi", "Uttara", "Mohammadpur", "Badda", "Jatrabari",
+            "Gulshan", "Banani", "Motijheel", "Farmgate", "Khilgaon", "Rampura", "Bashundhara", "Lalbagh",
+            "Shyamoli", "Tejgaon", "Wari", "Savar", "Tongi", "Keraniganj", "Chattogram", "Gazipur",
+            "Narayanganj", "Sylhet", "Rajshahi", "Khulna", "Cumilla", "Bogura", "Mymensingh", "Barishal"};
+    private static final String[] PHARMACY_PREFIXES = {"Lazz", "Tamanna", "Shifa", "Al-Madina", "Popular", "New",
+            "Modern", "City", "Rahman", "Janata", "Care", "Health Plus", "Seba", "Amin", "Mukti", "Bismillah",
+            "Green", "Nobel", "Prime", "Sunrise", "Rupali", "Bangla", "Ananda", "Friends", "Noor"};
+    private static final String[] PHARMACY_SUFFIXES = {"Pharmacy", "Pharma", "Drug House", "Medical Hall",
+            "Medicine Corner", "Drug Store"};
+    private static final String[] FIRST_NAMES = {"Mohammad", "Abdul", "Rahim", "Karim", "Hasan", "Hossain",
+            "Rafiq", "Jamal", "Kamal", "Sabbir", "Tanvir", "Arif", "Imran", "Fahim", "Nayeem", "Shakil", "Rakib",
+            "Fatema", "Ayesha", "Nusrat", "Sadia", "Tasnim", "Farhana", "Sharmin", "Nasrin", "Roksana", "Sumaiya",
+            "Jannat", "Mitu", "Rupa", "Anika", "Tania", "Parvez", "Mahmud", "Sajid", "Riya", "Priya", "Joy"};
+    private static final String[] LAST_NAMES = {"Ahmed", "Hossain", "Islam", "Rahman", "Khan", "Uddin", "Chowdhury",
+            "Akter", "Begum", "Sarker", "Das", "Roy", "Miah", "Sheikh", "Talukder", "Mollah", "Haque", "Alam",
+            "Karim", "Siddique", "Barua", "Saha", "Biswas", "Mondal", "Paul"};
+
+    // the day the sales history ends, fixed so that rows don't depend on when the generator runs
+    public static final LocalDate DEFAULT_END = LocalDate.of(2025, 1, 1);
+
+    private final Scale scale;
+    private final long seed;
+    private final LocalDate end;
+
+    // the catalog: one entry per product, index = popularity rank (0 sells most)
+    private final List<String> productNames = new ArrayList<>();
+    private final List<String> productGenerics = new ArrayList<>();
+    private final List<String> productBrands = new ArrayList<>();
+    private final List<String> tradeNames = new ArrayList<>();
+    private double[] productPrices;
+
+    // stock of pharmacy p is stockProducts[stockStart[p] .. stockStart[p + 1]), sorted by popularity
+    private int[] stockStart;
+    private int[] stockProducts;
+    private double[] pharmacyMarkup;
+
+    public DatasetGenerator(Scale scale, long seed) {
+        this(scale, seed, DEFAULT_END);
+    }
+
+    public DatasetGenerator(Scale scale, long seed, LocalDate end) {
+        this.scale = scale;
+        this.seed = seed;
+        this.end = end;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("pharmapoint.db.path") == null) {
+            System.err.println("Usage: java -Dpharmapoint.db.path=<database> dao.DatasetGenerator [small|medium|large] "
+                    + "[pharmacies=N] [medicines=N] [lines=N] [patients=N] [products=N] [days=N] [seed=N] [end=yyyy-mm-dd]");
+            System.err.println("The database path is required so the app's own database is never filled by accident.");
+            System.exit(2);
+        }
+        // a bulk load doesn't need to survive a power cut, a bigger page cache speeds up the index builds
+        if (System.getProperty("pharmapoint.db.synchronous") == null) {
+            System.setProperty("pharmapoint.db.synchronous", "OFF");
+        }
+        if (System.getProperty("pharmapoint.db.cacheSizeKb") == null) {
+            System.setProperty("pharmapoint.db.cacheSizeKb", String.valueOf(256 * 1024));
+        }
+
+        Scale scale = Scale.SMALL;
+        long seed = 42;
+        LocalDate end = DEFAULT_END;
+        Map<String, Long> overrides = new LinkedHashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                scale = Scale.forTier(arg);
+            } else if (arg.startsWith("seed=")) {
+                seed = Long.parseLong(arg.substring(equals + 1));
+            } else if (arg.startsWith("end=")) {
+                end = LocalDate.parse(arg.substring(equals + 1));
+            } else {
+                overrides.put(arg.substring(0, equals), Long.parseLong(arg.substring(equals + 1)));
+            }
+        }
+        scale = scale.with(overrides);
+
+        DatabaseInitializer.initialize();
+        Report report = new DatasetGenerator(scale, seed, end).generate();
+        System.out.println(report.getSummary());
+        DBConnection.shutdown();
+    }
+
+    public Report generate() throws SQLException {
+        Report report = new Report();
+        long started = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        buildCatalog(random.split());
+
+        String passwordHash = PasswordHasher.hash(PASSWORD);   // one hash for every account, hashing is the slow part
+        int firstPharmacistId = nextId("users");
+        int firstPharmacyId = nextId("pharmacies");
+        report.users = insertUsers(random.split(), firstPharmacistId, passwordHash);
+        report.pharmacies = insertPharmacies(random.split(), firstPharmacistId, firstPharmacyId);
+        report.indexNanos -= System.nanoTime();
+        List<String> dropped = dropSecondaryIndexes();
+        report.indexNanos += System.nanoTime();
+        try {
+            long medicinesStarted = System.nanoTime();
+            int lastMedicineId = nextId("medicines") - 1;
+            report.medicines = insertMedicines(random.split(), firstPharmacyId);
+            report.medicineNanos = System.nanoTime() - medicinesStarted;
+
+            long invoicesStarted = System.nanoTime();
+            long[] invoiceRows = insertInvoices(random.split(), firstPharmacyId);
+            report.invoices = invoiceRows[0];
+            report.invoiceLines = invoiceRows[1];
+            report.invoiceNanos = System.nanoTime() - invoicesStarted;
+
+            report.indexNanos -= System.nanoTime();
+            indexNewMedicines(lastMedicineId);
+        } finally {
+            restore(dropped);
+            report.indexNanos += System.nanoTime();
+        }
+        report.totalNanos = System.nanoTime() - started;
+        return report;
+    }
+
+    // Trade names in popularity order, the way patients type them ("Loxaren"), filled by generate()
+    public List<String> getTradeNames() {
+        return tradeNames;
+    }
+
+    private void buildCatalog(SplittableRandom random) {
+        Set<String> usedNames = new HashSet<>();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < scale.products; i++) {
+            order.add(i);
+        }
+        // Fisher-Yates with our own random, Collections.shuffle would need a java.util.Random
+        for (int i = order.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            order.set(j, order.set(i, order.get(j)));
+        }
+        productPrices = new double[scale.products];
+        for (int rank = 0; rank < scale.products; rank++) {
+            int product = order.get(rank);
+            Object[] generic = GENERICS[product % GENERICS.length];
+            // 2-3 syllables give under 20k names; when those keep colliding, names grow a syllable per 8 misses
+            String tradeName = tradeName(random, 0);
+            for (int misses = 1; !usedNames.add(tradeName); misses++) {
+                tradeName = tradeName(random, misses / 8);
+            }
+            String strength = (String) generic[1];
+            tradeNames.add(tradeName);
+            productNames.add(strength.isEmpty() ? tradeName : tradeName + " " + strength);
+            productGenerics.add((String) generic[0]);
+            productBrands.add(MANUFACTURERS[(product / GENERICS.length) % MANUFACTURERS.length]);
+            productPrices[rank] = (Double) generic[2] * (0.8 + random.nextDouble() * 0.5);
+        }
+    }
+
+    private int insertUsers(SplittableRandom random, int firstId, String passwordHash) throws SQLException {
+        int total = scale.pharmacies + scale.patients;
+        try (UnitOfWork work = UnitOfWork.begin();
+             BulkInsert users = new BulkInsert(work.getConnection(), "users", "id", "name", "email", "password", "dateOfBirth", "role")) {
+            for (int i = 0; i < total; i++) {
+                String role = i < scale.pharmacies ? "pharmacist" : "patient";
+                int id = firstId + i;
+                users.add(id, personName(random), role + "." + id + "@pharmapoint.test", passwordHash,
+                        LocalDate.of(1950 + random.nextInt(55), 1 + random.nextInt(12), 1 + random.nextInt(28)).toString(), role);
+            }
+            users.flush();
+            work.commit();
+        }
+        return total;
+    }
+
+    private int insertPharmacies(SplittableRandom random, int firstPharmacistId, int firstId) throws SQLException {
+        Zipf areas = new Zipf(AREAS.length, ZIPF_EXPONENT);
+        try (UnitOfWork work = UnitOfWork.begin();
+             BulkInsert pharmacies = new BulkInsert(work.getConnection(), "pharmacies", "id", "user_id", "name", "address", "area")) {
+            for (int i = 0; i < scale.pharmacies; i++) {
+                String area = AREAS[areas.sample(random)];
+                String name = PHARMACY_PREFIXES[random.nextInt(PHARMACY_PREFIXES.length)] + " "
+                        + PHARMACY_SUFFIXES[random.nextInt(PHARMACY_SUFFIXES.length)];
+                String address = "House " + (1 + random.nextInt(120)) + ", Road " + (1 + random.nextInt(30)) + ", " + area;
+                pharmacies.add(firstId + i, firstPharmacistId + i, name, address, area);
+            }
+            pharmacies.flush();
+            work.commit();
+        }
+        return scale.pharmacies;
+    }
+
+    // Spreads the stock lines over the pharmacies; each one stocks distinct products drawn by popularity
+    private long insertMedicines(SplittableRandom random, int firstPharmacyId) throws SQLException {
+        int perPharmacy = (int) (scale.medicines / scale.pharmacies);
+        int extra = (int) (scale.medicines % scale.pharmacies);
+        stockStart = new int[scale.pharmacies + 1];
+        stockProducts = new int[(int) scale.medicines];
+        pharmacyMarkup = new double[scale.pharmacies];
+        Zipf products = new Zipf(scale.products, ZIPF_EXPONENT);
+        boolean[] stocked = new boolean[scale.products];
+        // one per day, from a month before the end date to three years after it; epoch millis like addMedicine's setDate() stores
+        Long[] expiryDates = new Long[3 * 365];
+        for (int day = 0; day < expiryDates.length; day++) {
+            expiryDates[day] = Date.valueOf(end.plusDays(day - 30)).getTime();
+        }
+
+        long written = 0;
+        int position = 0;
+        int pharmacy = 0;
+        while (pharmacy < scale.pharmacies) {
+            try (UnitOfWork work = UnitOfWork.begin();
+                 BulkInsert medicines = new BulkInsert(work.getConnection(), "medicines",
+                         "pharmacy_id", "name", "generic_name", "brand", "price", "quantity", "expiry_date")) {
+                int rows = 0;
+                while (pharmacy < scale.pharmacies && rows < CHUNK_ROWS) {
+                    int lines = Math.min(scale.products, perPharmacy + (pharmacy < extra ? 1 : 0));
+                    int start = position;
+                    pharmacyMarkup[pharmacy] = 0.95 + random.nextDouble() * 0.15;
+                    // the long tail is sampled uniformly once the popular products are taken, rejection would crawl
+                    int attempts = 0;
+                    while (position - start < lines) {
+                        int product = attempts++ < lines * 4 ? products.sample(random) : random.nextInt(scale.products);
+                        if (!stocked[product]) {
+                            stocked[product] = true;
+                            stockProducts[position++] = product;
+                        }
+                    }
+                    Arrays.sort(stockProducts, start, position);
+                    stockStart[pharmacy + 1] = position;
+                    for (int i = start; i < position; i++) {
+                        int product = stockProducts[i];
+                        stocked[product] = false;
+                        int quantity = random.nextInt(100) < 3 ? 0 : random.nextInt(500);      // a few lines sold out
+                        medicines.add(firstPharmacyId + pharmacy, productNames.get(product), productGenerics.get(product),
+                                productBrands.get(product), price(pharmacy, product), quantity,
+                                expiryDates[random.nextInt(expiryDates.length)]);
+                    }
+                    rows += position - start;
+                    pharmacy++;
+                }
+                medicines.flush();
+                work.commit();
+                written += rows;
+            }
+            progress("medicines", written, scale.medicines);
+        }
+        return written;
+    }
+
+    // Sales history in created_at order: busy pharmacies sell more, popular products sell more, regulars return.
+    // Returns {invoices, lines}.
+    private long[] insertInvoices(SplittableRandom random, int firstPharmacyId) throws SQLException {
+        if (scale.invoiceLines == 0 || scale.medicines == 0) {
+            return new long[]{0, 0};
+        }
+        Zipf pharmacies = new Zipf(scale.pharmacies, ZIPF_EXPONENT);
+        int[] busiest = new int[scale.pharmacies];      // popularity rank -> pharmacy, so the busiest isn't always the first
+        for (int i = 0; i < busiest.length; i++) {
+            busiest[i] = i;
+        }
+        for (int i = busiest.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = busiest[i];
+            busiest[i] = busiest[j];
+            busiest[j] = swap;
+        }
+        Map<Integer, Zipf> shelves = new HashMap<>();      // by stock size, nearly all pharmacies share one
+        Zipf patients = scale.patients > 0 ? new Zipf(scale.patients, ZIPF_EXPONENT) : null;
+        String[] patientNames = new String[Math.max(1, scale.patients)];
+        String[] patientPhones = new String[patientNames.length];
+        SplittableRandom names = random.split();
+        for (int i = 0; i < patientNames.length; i++) {
+            patientNames[i] = personName(names);
+            patientPhones[i] = String.format("01%d%08d", 3 + i % 7, i);
+        }
+
+        long until = Timestamp.valueOf(end.atStartOfDay()).getTime();
+        long span = scale.days * 86_400_000L;
+        int[] lineProducts = new int[32];
+        int[] lineQuantities = new int[32];
+
+        int invoiceId = nextId("invoices");
+        long invoices = 0;
+        long lines = 0;
+        while (lines < scale.invoiceLines) {
+            try (UnitOfWork work = UnitOfWork.begin();
+                 BulkInsert invoiceRows = new BulkInsert(work.getConnection(), "invoices",
+                         "id", "pharmacy_id", "patient_name", "patient_phone", "total_amount", "created_at");
+                 BulkInsert itemRows = new BulkInsert(work.getConnection(), "invoice_items",
+                         "invoice_id", "medicine_name", "brand", "quantity", "price", "subtotal")) {
+                long chunkEnd = Math.min(scale.invoiceLines, lines + CHUNK_ROWS);
+                while (lines < chunkEnd) {
+                    int pharmacy = busiest[pharmacies.sample(random)];
+                    int stockFrom = stockStart[pharmacy];
+                    int stockSize = stockStart[pharmacy + 1] - stockFrom;
+                    if (stockSize == 0) {
+                        continue;
+                    }
+                    Zipf shelf = shelves.computeIfAbsent(stockSize, size -> new Zipf(size, ZIPF_EXPONENT));
+                    // mostly short prescriptions, now and then a long one
+                    int count = Math.min(Math.min(lineProducts.length, stockSize), 1 + geometric(random, 0.35));
+                    count = (int) Math.min(count, scale.invoiceLines - lines);
+                    double total = 0;
+                    for (int i = 0; i < count; i++) {
+                        int product = stockProducts[stockFrom + shelf.sample(random)];
+                        int quantity = random.nextInt(10) < 7 ? 1 + random.nextInt(3) : 5 + random.nextInt(26);
+                        lineProducts[i] = product;
+                        lineQuantities[i] = quantity;
+                        total += price(pharmacy, product) * quantity;
+                    }
+
+                    int patient = patients != null ? patients.sample(random) : 0;
+                    long createdAt = until - span + (long) (span * ((double) lines / scale.invoiceLines)) + random.nextInt(60_000);
+                    // created_at as the epoch millis InvoiceDAO's setTimestamp() stores
+                    invoiceRows.add(invoiceId, firstPharmacyId + pharmacy, patientNames[patient], patientPhones[patient],
+                            Math.round(total * 100) / 100.0, Math.min(createdAt, until));
+                    for (int i = 0; i < count; i++) {
+                        int product = lineProducts[i];
+                        double price = price(pharmacy, product);
+                        itemRows.add(invoiceId, productNames.get(product), productBrands.get(product), lineQuantities[i],
+                                price, Math.round(price * lineQuantities[i] * 100) / 100.0);
+                    }
+                    invoiceId++;
+                    invoices++;
+                    lines += count;
+                }
+                invoiceRows.flush();
+                itemRows.flush();
+                work.commit();
+            }
+            progress("invoice lines", lines, scale.invoiceLines);
+        }
+        return new long[]{invoices, lines};
+    }
+
+    // Same price on the stock line and on every invoice line that sold it
+    private double price(int pharmacy, int product) {
+        return Math.round(productPrices[product] * pharmacyMarkup[pharmacy] * 100) / 100.0;
+    }
+
+    // Drops the indexes of the bulk-loaded tables (except the UNIQUE/PRIMARY ones SQLite made itself) and
+    // the FTS insert trigger; returns their CREATE statements for restore()
+    private List<String> dropSecondaryIndexes() throws SQLException {
+        List<String> dropped = new ArrayList<>();
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            Connection conn = work.getConnection();
+            List<String[]> objects = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT type, name, sql FROM sqlite_master WHERE sql IS NOT NULL"
+                    + " AND ((type = 'index' AND tbl_name IN (?, ?, ?)) OR (type = 'trigger' AND name = 'medicines_fts_insert'))")) {
+                for (int i = 0; i < LOADED_TABLES.length; i++) {
+                    pstmt.setString(i + 1, LOADED_TABLES[i]);
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        objects.add(new String[]{rs.getString("type"), rs.getString("name"), rs.getString("sql")});
+                    }
+                }
+            }
+            try (Statement statement = conn.createStatement()) {
+                for (String[] object : objects) {
+                    statement.execute("DROP " + object[0].toUpperCase() + " \"" + object[1] + "\"");
+                    dropped.add(object[2]);
+                }
+            }
+            work.commit();
+        }
+        return dropped;
+    }
+
+    private void restore(List<String> created) throws SQLException {
+        try (UnitOfWork work = UnitOfWork.begin();
+             Statement statement = work.getConnection().createStatement()) {
+            for (String sql : created) {
+                statement.execute(sql);
+            }
+            work.commit();
+        }
+    }
+
+    // The FTS insert trigger was off during the load, index the new rows in one statement
+    private void indexNewMedicines(int lastIdBefore) throws SQLException {
+        try (UnitOfWork work = UnitOfWork.begin();
+             PreparedStatement pstmt = work.getConnection().prepareStatement("INSERT INTO medicines_fts(rowid, name, generic_name, brand)"
+                     + " SELECT id, name, generic_name, brand FROM medicines WHERE id > ?")) {
+            pstmt.setInt(1, lastIdBefore);
+            pstmt.executeUpdate();
+            work.commit();
+        }
+    }
+
+    private static int nextId(String table) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            assert conn != null;
+            try (Statement statement = conn.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table)) {
+                return rs.next() ? rs.getInt(1) : 1;
+            }
+        }
+    }
+
+    private static String tradeName(SplittableRandom random, int extraSyllables) {
+        StringBuilder name = new StringBuilder();
+        int syllables = 2 + random.nextInt(2) + extraSyllables;
+        for (int i = 0; i < syllables; i++) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+
+    private static String personName(SplittableRandom random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    private static int geometric(SplittableRandom random, double p) {
+        return (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+    }
+
+    private static void progress(String what, long done, long total) {
+        if (done == total || done % (CHUNK_ROWS * 20L) < CHUNK_ROWS) {
+            System.out.printf("  %,d / %,d %s%n", done, total, what);
+        }
+    }
+
+
+    // Multi-row INSERT for bulk loads: rows are buffered and sent ROWS_PER_STATEMENT at a time, so SQLite runs one
+    // statement (and updates sqlite_sequence once) per hundred rows instead of per row, about three times faster
+    private static final class BulkInsert implements AutoCloseable {
+        private static final int ROWS_PER_STATEMENT = 100;
+
+        private final PreparedStatement many;
+        private final PreparedStatement one;
+        private final int columns;
+        private final Object[] pending;
+        private int rows;
+
+        BulkInsert(Connection conn, String table, String... columns) throws SQLException {
+            String row = "(" + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+            String insert = "INSERT INTO " + table + "(" + String.join(", ", columns) + ") VALUES ";
+            this.columns = columns.length;
+            this.pending = new Object[columns.length * ROWS_PER_STATEMENT];
+            this.one = conn.prepareStatement(insert + row);
+            try {
+                this.many = conn.prepareStatement(insert + String.join(", ", Collections.nCopies(ROWS_PER_STATEMENT, row)));
+            } catch (SQLException e) {
+                one.close();
+                throw e;
+            }
+        }
+
+        void add(Object... values) throws SQLException {
+            System.arraycopy(values, 0, pending, rows * columns, columns);
+            if (++rows == ROWS_PER_STATEMENT) {
+                for (int i = 0; i < pending.length; i++) {
+                    many.setObject(i + 1, pending[i]);
+                }
+                many.addBatch();
+                rows = 0;
+            }
+        }
+
+        // Executes everything added so far; the rows that don't fill a whole statement go one by one
+        void flush() throws SQLException {
+            many.executeBatch();
+            for (int row = 0; row < rows; row++) {
+                for (int i = 0; i < columns; i++) {
+                    one.setObject(i + 1, pending[row * columns + i]);
+                }
+                one.addBatch();
+            }
+            one.executeBatch();
+            rows = 0;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                many.close();
+            } finally {
+                one.close();
+            }
+        }
+    }
+
+
+    // Zipf(s) over ranks 0..n-1, sampled by binary search over the cumulative distribution
+    static final class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 0; rank < n; rank++) {
+                sum += 1.0 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = sum;
+            }
+            for (int rank = 0; rank < n; rank++) {
+                cumulative[rank] /= sum;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+        }
+    }
+
+
+    public static class Scale {
+        public static final Scale SMALL = new Scale(100, 50_000, 500_000, 5_000, 4_000, 365);
+        public static final Scale MEDIUM = new Scale(1_000, 500_000, 5_000_000, 50_000, 8_000, 365);
+        public static final Scale LARGE = new Scale(10_000, 5_000_000, 50_000_000, 200_000, 12_000, 730);
+
+        private final int pharmacies;
+        private final long medicines;          // stock lines over all pharmacies
+        private final long invoiceLines;
+        private final int patients;
+        private final int products;            // distinct products in the catalog
+        private final int days;                // how far back the sales history goes
+
+        public Scale(int pharmacies, long medicines, long invoiceLines, int patients, int products, int days) {
+            if (pharmacies < 1 || products < 1 || days < 1 || medicines < 0 || invoiceLines < 0 || patients < 0) {
+                throw new IllegalArgumentException("Scale needs at least one pharmacy, product and day");
+            }
+            if (medicines > (long) pharmacies * products) {
+                throw new IllegalArgumentException("Can't stock " + medicines + " lines: " + pharmacies
+                        + " pharmacies can hold at most " + products + " distinct products each");
+            }
+            this.pharmacies = pharmacies;
+            this.medicines = medicines;
+            this.invoiceLines = invoiceLines;
+            this.patients = patients;
+            this.products = products;
+            this.days = days;
+        }
+
+        public static Scale forTier(String tier) {
+            switch (tier.toLowerCase()) {
+                case "small": return SMALL;
+                case "medium": return MEDIUM;
+                case "large": return LARGE;
+                default: throw new IllegalArgumentException("Unknown tier " + tier + ", use small, medium or large");
+            }
+        }
+
+        // Copy with some values replaced, keys as on the command line
+        public Scale with(Map<String, Long> overrides) {
+            Map<String, Long> values = new LinkedHashMap<>(Map.of("pharmacies", (long) pharmacies, "medicines", medicines,
+                    "lines", invoiceLines, "patients", (long) patients, "products", (long) products, "days", (long) days));
+            for (Map.Entry<String, Long> override : overrides.entrySet()) {
+                if (!values.containsKey(override.getKey())) {
+                    throw new IllegalArgumentException("Unknown setting " + override.getKey() + ", use one of " + values.keySet());
+                }
+                values.put(override.getKey(), override.getValue());
+            }
+            return new Scale(Math.toIntExact(values.get("pharmacies")), values.get("medicines"), values.get("lines"),
+                    Math.toIntExact(values.get("patients")), Math.toIntExact(values.get("products")), Math.toIntExact(values.get("days")));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d pharmacies, %,d medicines, %,d invoice lines, %,d patients, %,d products, %d days",
+                    pharmacies, medicines, invoiceLines, patients, products, days);
+        }
+    }
+
+
+    public static class Report {
+        private int users;
+        private int pharmacies;
+        private long medicines;
+        private long invoices;
+        private long invoiceLines;
+        private long medicineNanos;
+        private long invoiceNanos;
+        private long indexNanos;
+        private long totalNanos;
+
+        public long getMedicines() {
+            return medicines;
+        }
+
+        public long getInvoices() {
+            return invoices;
+        }
+
+        public long getInvoiceLines() {
+            return invoiceLines;
+        }
+
+        public String getSummary() {
+            return String.format("Generated %,d users, %,d pharmacies, %,d medicines (%,.0f rows/s), "
+                            + "%,d invoices with %,d lines (%,.0f lines/s); indexes %.1f s, total %.1f s",
+                    users, pharmacies, medicines, rate(medicines, medicineNanos), invoices, invoiceLines,
+                    rate(invoiceLines, invoiceNanos), indexNanos / 1e9, totalNanos / 1e9);
+        }
+
+        private static double rate(long rows, long nanos) {
+            return nanos > 0 ? rows * 1e9 / nanos : 0;
+        }
+    }
+}
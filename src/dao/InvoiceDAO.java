@@ -1,7 +1,12 @@
 package dao;
 
 import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 import models.Invoice;
+import models.Medicine;
 import models.SaleItem;
 
 public class InvoiceDAO {
@@ -13,13 +18,48 @@ public class InvoiceDAO {
             connection = DBConnection.getConnection();
             connection.setAutoCommit(false);        // Disables auto-save so we can manually control when changes are committed to the database.
 
-            // Insert into invoices table
-            String invoiceSQL = """
-                INSERT INTO invoices (pharmacy_id, patient_name, patient_phone, total_amount, created_at)
-                VALUES (?, ?, ?, ?, ?)
-            """;
-            
-            PreparedStatement invoiceStmt = connection.prepareStatement(invoiceSQL, Statement.RETURN_GENERATED_KEYS);
+            if (!insertInvoice(connection, invoice)) {
+                connection.rollback();      //undo changes after last commit if couldnt execute the query
+                return false;
+            }
+
+            connection.commit(); // Commit transaction
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("Error saving invoice: " + e.getMessage());
+            e.printStackTrace();
+            if (connection != null) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackEx) {
+                    System.err.println("Error rolling back transaction: " + rollbackEx.getMessage());
+                }
+            }
+            return false;
+        } finally {
+            if (connection != null) {
+                try {
+                    connection.setAutoCommit(true); // Reset auto-commit
+                    connection.close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Writes the invoice header and its items on the caller's connection, so it can share a transaction
+    // with other writes (like the stock decrement). Returns false when something wasn't written; the caller rolls back.
+    public boolean insertInvoice(Connection connection, Invoice invoice) throws SQLException {
+        // Insert into invoices table
+        String invoiceSQL = """
+            INSERT INTO invoices (pharmacy_id, patient_name, patient_phone, total_amount, created_at)
+            VALUES (?, ?, ?, ?, ?)
+        """;
+
+        int invoiceId;
+        try (PreparedStatement invoiceStmt = connection.prepareStatement(invoiceSQL, Statement.RETURN_GENERATED_KEYS)) {
                                 //statement.RETURN_GENERATED_KEYS allows you to retrieve the auto-generated keys (like ID) after insertion
                                     // which will be needed to insert in that rows later
             invoiceStmt.setInt(1, invoice.getPharmacyId());
@@ -27,74 +67,243 @@ public class InvoiceDAO {
             invoiceStmt.setString(3, invoice.getPatientPhone());
             invoiceStmt.setDouble(4, invoice.getTotalAmount());
             invoiceStmt.setTimestamp(5, Timestamp.valueOf(invoice.getCreatedAt()));
-            
+
             int rowsAffected = invoiceStmt.executeUpdate();
             if (rowsAffected == 0) {
-                connection.rollback();      //undo changes after last commit if couldnt execute the query
                 return false;
             }
-            
+
             // Get generated invoice ID
-            ResultSet generatedKeys = invoiceStmt.getGeneratedKeys();  // generatedKeys is a table that contains the auto-generated keys
-            int invoiceId;
-            if (generatedKeys.next()) {
-                invoiceId = generatedKeys.getInt(1);    //get the value of the first column 
-                invoice.setId(invoiceId); // Set the generated ID back to the invoice
-            } else {
-                connection.rollback();
-                return false;
+            try (ResultSet generatedKeys = invoiceStmt.getGeneratedKeys()) {  // generatedKeys is a table that contains the auto-generated keys
+                if (!generatedKeys.next()) {
+                    return false;
+                }
+                invoiceId = generatedKeys.getInt(1);    //get the value of the first column
             }
-            
-            // Insert invoice items
-            String itemSQL = """
-                INSERT INTO invoice_items (invoice_id, medicine_name, quantity, price, subtotal)
-                VALUES (?, ?, ?, ?, ?)
-            """;
-            
-            PreparedStatement itemStmt = connection.prepareStatement(itemSQL);
-            
-            for (SaleItem item : invoice.getItems()) {      //getItems() returns a list of SaleItem objects 
+        }
+
+        // Insert invoice items
+        String itemSQL = """
+            INSERT INTO invoice_items (invoice_id, medicine_name, brand, quantity, price, subtotal)
+            VALUES (?, ?, ?, ?, ?, ?)
+        """;
+
+        try (PreparedStatement itemStmt = connection.prepareStatement(itemSQL)) {
+            for (SaleItem item : invoice.getItems()) {      //getItems() returns a list of SaleItem objects
                 itemStmt.setInt(1, invoiceId);      //invoiceId will be same for all items in one invoice
                 itemStmt.setString(2, item.getMedicine().getName());
-                itemStmt.setInt(3, item.getQuantity());
-                itemStmt.setDouble(4, item.getMedicine().getPrice());
-                itemStmt.setDouble(5, item.getSubtotal());
+                itemStmt.setString(3, item.getMedicine().getBrand());
+                itemStmt.setInt(4, item.getQuantity());
+                itemStmt.setDouble(5, item.getMedicine().getPrice());
+                itemStmt.setDouble(6, item.getSubtotal());
                 itemStmt.addBatch();
             }
-            
+
             int[] batchResults = itemStmt.executeBatch();
-            
+
             // Check if all items were inserted
             for (int result : batchResults) {
                 if (result == Statement.EXECUTE_FAILED) {
-                    connection.rollback();
                     return false;
                 }
             }
-            
-            connection.commit(); // Commit transaction
-            return true;
-            
+        }
+
+        invoice.setId(invoiceId); // Set the generated ID back to the invoice
+        return true;
+    }
+
+    // Loads an invoice with its items and pharmacy details, or null if there is no such invoice
+    public Invoice getInvoiceById(int invoiceId) {
+        String invoiceSQL = """
+            SELECT i.id, i.pharmacy_id, i.patient_name, i.patient_phone, i.total_amount, i.created_at,
+                   p.name AS pharmacy_name, p.area AS pharmacy_area
+            FROM invoices i
+            LEFT JOIN pharmacies p ON p.id = i.pharmacy_id
+            WHERE i.id = ?
+        """;
+        String itemSQL = "SELECT medicine_name, brand, quantity, price FROM invoice_items WHERE invoice_id = ? ORDER BY id";
+
+        try (Connection connection = DBConnection.getConnection()) {
+            Invoice invoice;
+            try (PreparedStatement invoiceStmt = connection.prepareStatement(invoiceSQL)) {
+                invoiceStmt.setInt(1, invoiceId);
+                try (ResultSet rs = invoiceStmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    Timestamp createdAt = rs.getTimestamp("created_at");
+                    invoice = new Invoice(rs.getInt("id"), rs.getInt("pharmacy_id"),
+                            rs.getString("patient_name"), rs.getString("patient_phone"),
+                            rs.getDouble("total_amount"),
+                            createdAt != null ? createdAt.toLocalDateTime() : null,
+                            new ArrayList<>());
+                    invoice.setPharmacyName(rs.getString("pharmacy_name"));
+                    invoice.setPharmacyArea(rs.getString("pharmacy_area"));
+                }
+            }
+
+            try (PreparedStatement itemStmt = connection.prepareStatement(itemSQL)) {
+                itemStmt.setInt(1, invoiceId);
+                try (ResultSet rs = itemStmt.executeQuery()) {
+                    while (rs.next()) {
+                        // only what was printed on the invoice is stored, not the medicine row itself
+                        Medicine medicine = new Medicine(0, invoice.getPharmacyId(), rs.getString("medicine_name"),
+                                "", rs.getString("brand") != null ? rs.getString("brand") : "",
+                                rs.getDouble("price"), 0, "");
+                        invoice.getItems().add(new SaleItem(medicine, rs.getInt("quantity")));
+                    }
+                }
+            }
+            return invoice;
         } catch (SQLException e) {
-            System.err.println("Error saving invoice: " + e.getMessage());
-            e.printStackTrace();
-            if (connection != null) {
-                try {
-                    connection.rollback();
-                } catch (SQLException rollbackEx) {
-                    System.err.println("Error rolling back transaction: " + rollbackEx.getMessage());
+            System.err.println("Error loading invoice " + invoiceId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // The pharmacy an invoice was issued by, or 0 if there is no such invoice
+    public int getInvoicePharmacyId(int invoiceId) {
+        String sql = "SELECT pharmacy_id FROM invoices WHERE id = ?";
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, invoiceId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt("pharmacy_id") : 0;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading invoice " + invoiceId + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Calls action for every invoice of the pharmacy created in [from, to), oldest first, each with its
+     * items and pharmacy details. Invoices and items come from one joined query read row by row, so
+     * only the invoice being assembled is in memory however long the range is. Returns how many
+     * invoices were visited; stops early (returning the count so far) if the thread is interrupted.
+     * A database error is thrown rather than logged, a caller must not mistake a cut-off read for the whole range.
+     */
+    public long forEachInvoice(int pharmacyId, LocalDateTime from, LocalDateTime to, Consumer<Invoice> action) throws SQLException {
+        // created_at is bound and stored the same way (Timestamp), so the range is a seek on idx_invoices_pharmacy_created
+        String sql = """
+            SELECT i.id, i.pharmacy_id, i.patient_name, i.patient_phone, i.total_amount, i.created_at,
+                   p.name AS pharmacy_name, p.area AS pharmacy_area,
+                   it.medicine_name, it.brand, it.quantity, it.price
+            FROM invoices i
+            LEFT JOIN pharmacies p ON p.id = i.pharmacy_id
+            LEFT JOIN invoice_items it ON it.invoice_id = i.id
+            WHERE i.pharmacy_id = ? AND i.created_at >= ? AND i.created_at < ?
+            ORDER BY i.created_at, i.id, it.id
+        """;
+        long visited = 0;
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setFetchSize(500);
+            stmt.setInt(1, pharmacyId);
+            stmt.setTimestamp(2, Timestamp.valueOf(from));
+            stmt.setTimestamp(3, Timestamp.valueOf(to));
+            try (ResultSet rs = stmt.executeQuery()) {
+                Invoice current = null;
+                while (rs.next()) {
+                    int invoiceId = rs.getInt("id");
+                    if (current == null || current.getId() != invoiceId) {
+                        if (current != null) {
+                            action.accept(current);
+                            visited++;
+                            if (Thread.currentThread().isInterrupted()) {
+                                return visited;
+                            }
+                        }
+                        Timestamp createdAt = rs.getTimestamp("created_at");
+                        current = new Invoice(invoiceId, rs.getInt("pharmacy_id"),
+                                rs.getString("patient_name"), rs.getString("patient_phone"),
+                                rs.getDouble("total_amount"),
+                                createdAt != null ? createdAt.toLocalDateTime() : null,
+                                new ArrayList<>());
+                        current.setPharmacyName(rs.getString("pharmacy_name"));
+                        current.setPharmacyArea(rs.getString("pharmacy_area"));
+                    }
+                    String medicineName = rs.getString("medicine_name");
+                    if (medicineName != null) {     // null when the invoice has no items (LEFT JOIN)
+                        String brand = rs.getString("brand");
+                        Medicine medicine = new Medicine(0, pharmacyId, medicineName, "", brand != null ? brand : "",
+                                rs.getDouble("price"), 0, "");
+                        current.getItems().add(new SaleItem(medicine, rs.getInt("quantity")));
+                    }
+                }
+                if (current != null) {
+                    action.accept(current);
+                    visited++;
                 }
             }
-            return false;
-        } finally {
-            if (connection != null) {
-                try {
-                    connection.setAutoCommit(true); // Reset auto-commit
-                    connection.close();
-                } catch (SQLException e) {
-                    System.err.println("Error closing connection: " + e.getMessage());
+        }
+        return visited;
+    }
+
+    // How many invoices forEachInvoice would visit, for progress reporting
+    public int countInvoices(int pharmacyId, LocalDateTime from, LocalDateTime to) {
+        String sql = "SELECT COUNT(*) FROM invoices WHERE pharmacy_id = ? AND created_at >= ? AND created_at < ?";
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, pharmacyId);
+            stmt.setTimestamp(2, Timestamp.valueOf(from));
+            stmt.setTimestamp(3, Timestamp.valueOf(to));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting invoices for pharmacy " + pharmacyId + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // Records that the invoice's file still has to be rendered, on the checkout's transaction
+    // so the job exists exactly when the invoice does
+    public void insertRenderJob(Connection connection, int invoiceId) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "INSERT OR REPLACE INTO invoice_render_jobs (invoice_id, status, attempts) VALUES (?, 'pending', 0)")) {
+            stmt.setInt(1, invoiceId);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Ids of invoices still waiting for their file, oldest first
+    public List<Integer> getPendingRenderJobs(int limit) {
+        List<Integer> invoiceIds = new ArrayList<>();
+        String sql = "SELECT invoice_id FROM invoice_render_jobs WHERE status = 'pending' ORDER BY invoice_id LIMIT ?";
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    invoiceIds.add(rs.getInt(1));
                 }
             }
+        } catch (SQLException e) {
+            System.err.println("Error loading pending invoice render jobs: " + e.getMessage());
+        }
+        return invoiceIds;
+    }
+
+    // status is pending, done or failed; returns false if the row couldn't be updated
+    public boolean updateRenderJob(int invoiceId, String status, int attempts, String filePath, String lastError) {
+        String sql = """
+            UPDATE invoice_render_jobs
+            SET status = ?, attempts = ?, file_path = ?, last_error = ?, updated_at = CURRENT_TIMESTAMP
+            WHERE invoice_id = ?
+        """;
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, status);
+            stmt.setInt(2, attempts);
+            stmt.setString(3, filePath);
+            stmt.setString(4, lastError);
+            stmt.setInt(5, invoiceId);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("Error updating render job for invoice " + invoiceId + ": " + e.getMessage());
+            return false;
         }
     }
 }
@@ -0,0 +1,38 @@
+package dao;
+
+import models.Medicine;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Columns of the medicines table, for queries that only need some of them (see MedicineQuery)
+public enum MedicineColumn {
+    ID("id"),
+    PHARMACY_ID("pharmacy_id"),
+    NAME("name"),
+    GENERIC_NAME("generic_name"),
+    BRAND("brand"),
+    PRICE("price"),
+    QUANTITY("quantity"),
+    EXPIRY_DATE("expiry_date");
+
+    final String column;
+
+    MedicineColumn(String column) {
+        this.column = column;
+    }
+
+    // Copies this column from result set position index into the medicine
+    void read(ResultSet rs, int index, Medicine medicine) throws SQLException {
+        switch (this) {
+            case ID: medicine.setId(rs.getInt(index)); break;
+            case PHARMACY_ID: medicine.setPharmacyId(rs.getInt(index)); break;
+            case NAME: medicine.setName(rs.getString(index)); break;
+            case GENERIC_NAME: medicine.setGenericName(rs.getString(index)); break;
+            case BRAND: medicine.setBrand(rs.getString(index)); break;
+            case PRICE: medicine.setPrice(rs.getDouble(index)); break;
+            case QUANTITY: medicine.setQuantity(rs.getInt(index)); break;
+            case EXPIRY_DATE: medicine.setExpiryDate(rs.getString(index)); break;
+        }
+    }
+}
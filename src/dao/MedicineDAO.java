@@ -6,11 +6,17 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import models.Medicine;
 import models.Pharmacy;
+import models.PharmacyMatch;
+import models.SaleItem;
+import models.StockShortfall;
 
 public class MedicineDAO {
 
@@ -19,7 +25,7 @@ public class MedicineDAO {
 
         try (Connection conn = DBConnection.getConnection()) {
             assert conn != null;       //if connection is null, it will throw an Error
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
                 pstmt.setInt(1, medicine.getPharmacyId());
                 pstmt.setString(2, medicine.getName());
@@ -30,6 +36,11 @@ public class MedicineDAO {
                 pstmt.setDate(7, java.sql.Date.valueOf(medicine.getExpiryDate()));
 
                 pstmt.executeUpdate();
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        medicine.setId(generatedKeys.getInt(1));    //so callers (and the catalog cache) know the new row
+                    }
+                }
                 return true;
 
             }
@@ -49,16 +60,7 @@ public class MedicineDAO {
 
                 ResultSet rs = pstmt.executeQuery();        //rs is a table with data that we want 
                 while(rs.next()){
-                    medicines.add(new Medicine(
-                            rs.getInt("id"),                // Get the data from the column "id"
-                            rs.getInt("pharmacy_id"),
-                            rs.getString("name"),
-                            rs.getString("generic_name"),
-                            rs.getString("brand"),
-                            rs.getDouble("price"),
-                            rs.getInt("quantity"),
-                            rs.getString("expiry_date")
-                    ));
+                    medicines.add(mapMedicine(rs));
                 }
             }
         } catch (SQLException e) {
@@ -78,16 +80,7 @@ public class MedicineDAO {
                 ResultSet rs = stmt.executeQuery();
 
                 while (rs.next()) {
-                    medicines.add(new Medicine(
-                            rs.getInt("id"),
-                            rs.getInt("pharmacy_id"),
-                            rs.getString("name"),
-                            rs.getString("generic_name"),
-                            rs.getString("brand"),
-                            rs.getDouble("price"),
-                            rs.getInt("quantity"),
-                            rs.getString("expiry_date")
-                    ));
+                    medicines.add(mapMedicine(rs));
                 }
 
             }
@@ -112,29 +105,39 @@ public class MedicineDAO {
         }
     }
     public List<Medicine> searchMedicineByName(String keyword) {
+        return searchByName(keyword, null);
+    }
+
+    // Same search within one pharmacy's stock, so a pharmacist's search doesn't load every pharmacy's matches
+    public List<Medicine> searchMedicineByName(String keyword, int pharmacyId) {
+        return searchByName(keyword, pharmacyId);
+    }
+
+    // pharmacyId null = every pharmacy
+    private List<Medicine> searchByName(String keyword, Integer pharmacyId) {
         List<Medicine> list = new ArrayList<>();
-        String sql = "SELECT * FROM medicines WHERE name LIKE ? OR generic_name LIKE ?";
+        String match = toMatchExpression(Collections.singletonList(keyword));      // List.of would throw on null, a null keyword finds nothing
+        if (match == null) {
+            return list;
+        }
+        String sql = """
+            SELECT m.* FROM medicines_fts
+            JOIN medicines m ON m.id = medicines_fts.rowid
+            WHERE medicines_fts MATCH ?
+        """ + (pharmacyId != null ? " AND m.pharmacy_id = ?" : "");
 
         try (Connection conn = DBConnection.getConnection()) {
             assert conn != null;
             try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-                String search = "%" + keyword + "%";
-                pstmt.setString(1, search);
-                pstmt.setString(2, search);
+                pstmt.setString(1, match);
+                if (pharmacyId != null) {
+                    pstmt.setInt(2, pharmacyId);
+                }
 
                 ResultSet rs = pstmt.executeQuery();
                 while (rs.next()) {
-                    list.add(new Medicine(
-                            rs.getInt("id"),
-                            rs.getInt("pharmacy_id"),
-                            rs.getString("name"),
-                            rs.getString("generic_name"),
-                            rs.getString("brand"),
-                            rs.getDouble("price"),
-                            rs.getInt("quantity"),
-                            rs.getString("expiry_date")
-                    ));
+                    list.add(mapMedicine(rs));
                 }
             }
         } catch (SQLException e) {
@@ -165,6 +168,108 @@ public class MedicineDAO {
         }
     }
 
+    /**
+     * Takes the sold quantities out of stock with one guarded UPDATE per line, sent as a single batch.
+     * A line only applies while enough stock is left, so concurrent sales can never oversell or lose updates.
+     * Runs on the caller's connection; the caller owns the transaction and must roll back when shortfalls come back.
+     * @return the lines that could not be fulfilled, empty when every line was decremented
+     */
+    public List<StockShortfall> decrementStock(Connection conn, List<SaleItem> saleItems) throws SQLException {
+        List<StockShortfall> shortfalls = new ArrayList<>();
+        if (saleItems.isEmpty()) {
+            return shortfalls;
+        }
+
+        String sql = "UPDATE medicines SET quantity = quantity - ? WHERE id = ? AND quantity >= ?";
+        int[] updated;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (SaleItem item : saleItems) {
+                pstmt.setInt(1, item.getQuantity());
+                pstmt.setInt(2, item.getMedicine().getId());
+                pstmt.setInt(3, item.getQuantity());
+                pstmt.addBatch();
+            }
+            updated = pstmt.executeBatch();
+        }
+
+        // Only lines that failed pay for a second look-up, to report what is actually left
+        try (PreparedStatement lookup = conn.prepareStatement("SELECT quantity FROM medicines WHERE id = ?")) {
+            for (int i = 0; i < saleItems.size(); i++) {
+                if (updated[i] > 0) {
+                    continue;
+                }
+                SaleItem item = saleItems.get(i);
+                lookup.setInt(1, item.getMedicine().getId());
+                try (ResultSet rs = lookup.executeQuery()) {
+                    int available = rs.next() ? rs.getInt(1) : -1;
+                    shortfalls.add(new StockShortfall(item.getMedicine().getId(), item.getMedicine().getName(),
+                            item.getQuantity(), available));
+                }
+            }
+        }
+        return shortfalls;
+    }
+
+    /**
+     * Writes a chunk of imported stock lines on the caller's transaction. A line matching an existing
+     * (pharmacy_id, name, brand, expiry_date) updates that row, either adding to its quantity or
+     * replacing it; any other line is inserted. Keys must be unique within the chunk.
+     * Returns {updated, inserted}.
+     *
+     * The lines go into a temp table first and are then applied with one UPDATE and one INSERT ... SELECT.
+     * Row-by-row inserts were several times slower: the FTS trigger flushes its index at the end of
+     * every statement, so it pays off to make that one statement per chunk.
+     */
+    public int[] upsertMedicines(Connection conn, Collection<Medicine> medicines, boolean addToStock) throws SQLException {
+        // expiry_date is stored as epoch millis by addMedicine but as yyyy-MM-dd by updateMedicine, match either
+        String stockLine = "m.pharmacy_id = i.pharmacy_id AND m.name = i.name AND m.brand = i.brand"
+                + " AND m.expiry_date IN (i.expiry_date, i.expiry_text)";
+        String updateSql = "UPDATE medicines SET generic_name = i.generic_name, price = i.price, quantity = "
+                + (addToStock ? "medicines.quantity + i.quantity" : "i.quantity")
+                + " FROM (SELECT (SELECT MIN(m.id) FROM medicines m WHERE " + stockLine + ") AS target_id, i.*"
+                + " FROM medicine_import i) AS i WHERE medicines.id = i.target_id";
+        String insertSql = "INSERT INTO medicines(pharmacy_id, name, generic_name, brand, price, quantity, expiry_date)"
+                + " SELECT i.pharmacy_id, i.name, i.generic_name, i.brand, i.price, i.quantity, i.expiry_date FROM medicine_import i"
+                + " WHERE NOT EXISTS (SELECT 1 FROM medicines m WHERE " + stockLine + ") ORDER BY i.line";
+
+        try (Statement statement = conn.createStatement()) {
+            statement.execute("CREATE TEMP TABLE IF NOT EXISTS medicine_import (line INTEGER PRIMARY KEY, pharmacy_id INTEGER, "
+                    + "name TEXT, generic_name TEXT, brand TEXT, price REAL, quantity INTEGER, expiry_date TEXT, expiry_text TEXT)");
+            statement.execute("DELETE FROM medicine_import");
+        }
+        try (PreparedStatement stage = conn.prepareStatement("INSERT INTO medicine_import(pharmacy_id, name, generic_name, brand, "
+                + "price, quantity, expiry_date, expiry_text) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (Medicine medicine : medicines) {
+                stage.setInt(1, medicine.getPharmacyId());
+                stage.setString(2, medicine.getName());
+                stage.setString(3, medicine.getGenericName());
+                stage.setString(4, medicine.getBrand());
+                stage.setDouble(5, medicine.getPrice());
+                stage.setInt(6, medicine.getQuantity());
+                stage.setDate(7, java.sql.Date.valueOf(medicine.getExpiryDate()));     // stored the same way as addMedicine
+                stage.setString(8, medicine.getExpiryDate());
+                stage.addBatch();
+            }
+            stage.executeBatch();
+        }
+
+        // executeUpdate() would also count the rows the FTS trigger wrote, changes() doesn't
+        try (Statement statement = conn.createStatement()) {
+            statement.executeUpdate(updateSql);
+            int updated = lastChanges(statement);
+            statement.executeUpdate(insertSql);
+            int inserted = lastChanges(statement);
+            statement.execute("DELETE FROM medicine_import");
+            return new int[]{updated, inserted};
+        }
+    }
+
+    private static int lastChanges(Statement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT changes()")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
     public Medicine getMedicineById(int medicineId) {
         String sql = "SELECT * FROM medicines WHERE id = ?";
         
@@ -176,16 +281,7 @@ public class MedicineDAO {
                 ResultSet rs = pstmt.executeQuery();
                 
                 if (rs.next()) {
-                    return new Medicine(
-                            rs.getInt("id"),
-                            rs.getInt("pharmacy_id"),
-                            rs.getString("name"),
-                            rs.getString("generic_name"),
-                            rs.getString("brand"),
-                            rs.getDouble("price"),
-                            rs.getInt("quantity"),
-                            rs.getString("expiry_date")
-                    );
+                    return mapMedicine(rs);
                 }
             }
         } catch (SQLException e) {
@@ -196,22 +292,25 @@ public class MedicineDAO {
 
     public List<Pharmacy> findPharmaciesWithMedicine(String keyword) {
         List<Pharmacy> result = new ArrayList<>();
+        String match = toMatchExpression(Collections.singletonList(keyword));
+        if (match == null) {
+            return result;
+        }
 
         String sql = """
         SELECT p.id, p.user_id, p.name, p.address, p.area
-        FROM medicines m
-        JOIN pharmacies p ON m.pharmacy_id = p.id           
-        WHERE (m.name LIKE ? OR m.generic_name LIKE ?)
+        FROM medicines_fts
+        JOIN medicines m ON m.id = medicines_fts.rowid
+        JOIN pharmacies p ON m.pharmacy_id = p.id
+        WHERE medicines_fts MATCH ?
         AND m.quantity > 0
         GROUP BY p.id
-    """;                                                    //starting from the medicines table, joining it with pharmacies, and returning details of each pharmacy that has at least one matching, in-stock medicine.
+    """;                                                    //starting from the matching medicines in the search index, joining them with pharmacies, and returning details of each pharmacy that has at least one matching, in-stock medicine.
         try (Connection conn = DBConnection.getConnection()) {
             assert conn != null;
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-                String search = "%" + keyword + "%";
-                stmt.setString(1, search);
-                stmt.setString(2, search);
+                stmt.setString(1, match);
 
                 ResultSet rs = stmt.executeQuery();
                 while (rs.next()) {
@@ -233,99 +332,89 @@ public class MedicineDAO {
         return result;
     }
 
-    public Map<Pharmacy, Map<String, Object>> findPharmaciesWithMedicines(List<String> medicineNames) {
-        Map<Pharmacy, Map<String, Object>> result = new HashMap<>();
+    // Every pharmacy holding at least one in-stock match, in pharmacy name order, each with its matching medicines
+    // and a bit per entry of medicineNames telling which requested medicines it actually covers
+    public List<PharmacyMatch> findPharmaciesWithMedicines(List<String> medicineNames) {
+        List<PharmacyMatch> result = new ArrayList<>();
 
         if (medicineNames.isEmpty()) {
             return result;
         }
-        
-        // Build dynamic SQL with placeholders
-        StringBuilder sql = new StringBuilder();
-        sql.append("SELECT p.id, p.user_id, p.name, p.address, p.area, ");
-        sql.append("m.name as medicine_name, m.generic_name, m.brand, m.price, m.quantity ");
-        sql.append("FROM pharmacies p ");
-        sql.append("LEFT JOIN medicines m ON p.id = m.pharmacy_id ");
-        sql.append("WHERE m.quantity > 0 AND (");
-        
+
+        // One full-text lookup per requested name, tagged with its position in the list.
+        // A medicine matching two names comes back once per name, so both bits get set.
+        List<String> termMatches = new ArrayList<>(medicineNames.size());
+        List<Integer> termIndexes = new ArrayList<>(medicineNames.size());
         for (int i = 0; i < medicineNames.size(); i++) {
-            if (i > 0) sql.append(" OR ");
-            sql.append("m.name LIKE ? OR m.generic_name LIKE ?");
+            String termMatch = toMatchExpression(Collections.singletonList(medicineNames.get(i)));
+            if (termMatch != null) {     // a name with no searchable words can never be covered
+                termMatches.add(termMatch);
+                termIndexes.add(i);
+            }
         }
-        sql.append(") ORDER BY p.name ASC");
+        if (termMatches.isEmpty()) {
+            return result;
+        }
+
+        StringBuilder hits = new StringBuilder();
+        for (int i = 0; i < termMatches.size(); i++) {
+            if (i > 0) {
+                hits.append(" UNION ALL ");
+            }
+            hits.append("SELECT ? AS term_index, rowid AS medicine_id FROM medicines_fts WHERE medicines_fts MATCH ?");
+        }
+
+        String sql = """
+            SELECT hits.term_index, p.id, p.user_id, p.name, p.address, p.area,
+                   m.name as medicine_name, m.generic_name, m.brand, m.price, m.quantity
+            FROM (%s) hits
+            JOIN medicines m ON m.id = hits.medicine_id
+            JOIN pharmacies p ON p.id = m.pharmacy_id
+            WHERE m.quantity > 0
+            ORDER BY p.name ASC
+        """.formatted(hits);
         
         try (Connection conn = DBConnection.getConnection()) {
             assert conn != null;
-            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 
-                // Set parameters
-                int paramIndex = 1;
-                for (String medicineName : medicineNames) {
-                    String search = "%" + medicineName.trim() + "%";
-                    stmt.setString(paramIndex++, search);
-                    stmt.setString(paramIndex++, search);
+                int param = 1;
+                for (int i = 0; i < termMatches.size(); i++) {
+                    stmt.setInt(param++, termIndexes.get(i));
+                    stmt.setString(param++, termMatches.get(i));
                 }
                 
-                ResultSet rs = stmt.executeQuery();     //rs returns a hybrid table -> pharmacy(id, user_id, name, address, area) + medicine(medicine_name, generic_name, brand, price, quantity)
-                while (rs.next()) {
-                    // Create pharmacy object
-                    Pharmacy pharmacy = new Pharmacy(
-                            rs.getInt("id"),
-                            rs.getInt("user_id"),
-                            rs.getString("name"),
-                            rs.getString("address"),
-                            rs.getString("area")
-                        );
-                    
-                    // Group by pharmacy to avoid duplicates
-                    Pharmacy existingPharmacy = null;
-                    for (Pharmacy p : result.keySet()) {    //keySet() returns a array of pharmacy which are the key if result map
-                        if (p.getId() == pharmacy.getId()) {
-                            existingPharmacy = p;
-                            break;
+                // Group by pharmacy id, rows arrive sorted by pharmacy name so insertion order is the result order
+                Map<Integer, PharmacyMatch> matchesByPharmacy = new LinkedHashMap<>();
+                try (ResultSet rs = stmt.executeQuery()) {     //rs returns a hybrid table -> pharmacy(id, user_id, name, address, area) + medicine(medicine_name, generic_name, brand, price, quantity)
+                    while (rs.next()) {
+                        int pharmacyId = rs.getInt("id");
+                        PharmacyMatch pharmacyMatch = matchesByPharmacy.get(pharmacyId);
+                        if (pharmacyMatch == null) {
+                            // first row of this pharmacy, only now is the Pharmacy object built
+                            pharmacyMatch = new PharmacyMatch(new Pharmacy(
+                                    pharmacyId,
+                                    rs.getInt("user_id"),
+                                    rs.getString("name"),
+                                    rs.getString("address"),
+                                    rs.getString("area")));
+                            matchesByPharmacy.put(pharmacyId, pharmacyMatch);
                         }
-                    }
-                    
-                    if (existingPharmacy == null) {
-                        // Create new pharmacy entry
-                        java.util.Map<String, Object> data = new java.util.HashMap<>();
-                        data.put("availableMedicines", new java.util.ArrayList<Medicine>());    //arraylist is an object
-                        data.put("count", 0);       // integer is an object too
-                        result.put(pharmacy, data);
-                        existingPharmacy = pharmacy;
-                    }
-                    
-                    // Add the medicines availble in the pharmacy that we were searching in the pharmacies
-                    @SuppressWarnings("unchecked")
-                    List<Medicine> medicines = (List<Medicine>) result.get(existingPharmacy).get("availableMedicines");
-                            // .get(abc) returns the value associated with the abc key
-
-                    Medicine medicine = new Medicine(
-                            0, // id not needed for this use case
-                            rs.getInt("id"),
-                            rs.getString("medicine_name"),
-                            rs.getString("generic_name"),
-                            rs.getString("brand"),
-                            rs.getDouble("price"),
-                            rs.getInt("quantity"),
-                            "" // expiry not needed for this use case
-                    );
-                    
-                    // Check if medicine already exists
-                    boolean exists = false;
-                    for (Medicine m : medicines) {
-                        if (m.getName().equals(medicine.getName()) && m.getBrand().equals(medicine.getBrand())) {
-                            exists = true;
-                            break;
-                        }
-                    }
-                    
-                    if (!exists) {
-                        medicines.add(medicine);
-                        result.get(existingPharmacy).put("count", medicines.size());
+
+                        // Mark the requested medicine as covered and add the medicine availble in the pharmacy
+                        pharmacyMatch.addMedicine(rs.getInt("term_index"), new Medicine(
+                                0, // id not needed for this use case
+                                pharmacyId,
+                                rs.getString("medicine_name"),
+                                rs.getString("generic_name"),
+                                rs.getString("brand"),
+                                rs.getDouble("price"),
+                                rs.getInt("quantity"),
+                                "" // expiry not needed for this use case
+                        ));
                     }
                 }
-                
+                result.addAll(matchesByPharmacy.values());
             }
         } catch (SQLException e) {
             System.err.println("Error finding pharmacies with medicines: " + e.getMessage());
@@ -336,41 +425,242 @@ public class MedicineDAO {
 
 
     /**
-     * Get all medicines with pharmacy information, ordered by quantity descending
-     * @return List of all medicines sorted by quantity
+     * Turns user-typed search terms into an FTS5 query over medicines_fts.
+     * Each term matches when all of its words appear as word prefixes in the name or generic name,
+     * e.g. "napa ext" finds "Napa Extend"; the terms themselves are OR-ed together.
+     * @return the MATCH expression, or null when no term contains a searchable word
      */
-    public List<Medicine> getAllMedicinesWithPharmacyInfo() {
-        List<Medicine> medicines = new ArrayList<>();
-        String sql = "SELECT m.*, p.name as pharmacy_name " +
-                    "FROM medicines m " +
-                    "LEFT JOIN pharmacies p ON m.pharmacy_id = p.id " +
-                    "ORDER BY m.quantity DESC";
-        
+    static String toMatchExpression(List<String> terms) {
+        StringBuilder expression = new StringBuilder();
+        for (String term : terms) {
+            String termExpression = toTermExpression(term);
+            if (termExpression == null) {
+                continue;
+            }
+            if (expression.length() > 0) {
+                expression.append(" OR ");
+            }
+            expression.append(termExpression);
+        }
+        if (expression.length() == 0) {
+            return null;
+        }
+        return "{name generic_name} : (" + expression + ")";
+    }
+
+    // Splits on the same boundaries as the unicode61 tokenizer and quotes every word as a prefix query
+    private static String toTermExpression(String term) {
+        if (term == null) {
+            return null;
+        }
+        StringBuilder expression = new StringBuilder();
+        for (String word : term.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (expression.length() > 0) {
+                expression.append(' ');
+            }
+            expression.append('"').append(word).append("\"*");
+        }
+        return expression.length() == 0 ? null : "(" + expression + ")";
+    }
+
+    // Number of medicines matching search (all of them when search has no words)
+    public int countMedicines(String search) {
+        String match = search == null ? null : toMatchExpression(List.of(search));
+        String sql = match == null
+                ? "SELECT COUNT(*) FROM medicines"
+                : "SELECT COUNT(*) FROM medicines_fts WHERE medicines_fts MATCH ?";
+
         try (Connection conn = DBConnection.getConnection()) {
             assert conn != null;
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(sql)) {
-                
-                while (rs.next()) {
-                    Medicine medicine = new Medicine(
-                        rs.getInt("id"),
-                        rs.getInt("pharmacy_id"),
-                        rs.getString("name"),
-                        rs.getString("generic_name"),
-                        rs.getString("brand"),
-                        rs.getDouble("price"),
-                        rs.getInt("quantity"),
-                        rs.getString("expiry_date")
-                    );
-                    medicines.add(medicine);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                if (match != null) {
+                    stmt.setString(1, match);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
                 }
-                
             }
         } catch (SQLException e) {
-            System.err.println("Error getting all medicines: " + e.getMessage());
+            System.err.println("Error counting medicines: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * One page of medicines across all pharmacies, in the given sort order.
+     * With after set (the last row of the previous page) the page continues from that row
+     * through the sort index (keyset paging); otherwise it skips offset rows.
+     */
+    public List<Medicine> getMedicinesPage(String search, MedicineSort sort, Medicine after, int offset, int limit) {
+        List<Medicine> medicines = new ArrayList<>(limit);
+        String match = search == null ? null : toMatchExpression(List.of(search));
+
+        StringBuilder sql = new StringBuilder("SELECT m.* FROM medicines m");
+        List<String> conditions = new ArrayList<>();
+        if (match != null) {
+            sql.append(" JOIN medicines_fts ON medicines_fts.rowid = m.id");
+            conditions.add("medicines_fts MATCH ?");
+        }
+        if (after != null) {
+            conditions.add(sort.after());
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY ").append(sort.orderBy()).append(" LIMIT ?");
+        if (after == null) {
+            sql.append(" OFFSET ?");
+        }
+
+        try (Connection conn = DBConnection.getConnection()) {
+            assert conn != null;
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                int param = 1;
+                if (match != null) {
+                    stmt.setString(param++, match);
+                }
+                if (after != null) {
+                    stmt.setObject(param++, sort.valueOf(after));
+                    stmt.setInt(param++, after.getId());
+                }
+                stmt.setInt(param++, limit);
+                if (after == null) {
+                    stmt.setInt(param, offset);
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        medicines.add(mapMedicine(rs));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading medicines page: " + e.getMessage());
         }
-        
         return medicines;
     }
 
+    // How many medicines across all pharmacies are below threshold units (a range count on idx_medicines_quantity)
+    public int countLowStockMedicines(int threshold) {
+        String sql = "SELECT COUNT(*) FROM medicines WHERE quantity < ?";
+
+        try (Connection conn = DBConnection.getConnection()) {
+            assert conn != null;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, threshold);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting low stock medicines: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // The limit lowest-stock medicines below threshold units across all pharmacies, with their pharmacy's name
+    public List<LowStockLine> getLowStockMedicines(int threshold, int limit) {
+        List<LowStockLine> lines = new ArrayList<>();
+        String sql = """
+            SELECT m.*, p.name AS pharmacy_name
+            FROM medicines m
+            LEFT JOIN pharmacies p ON p.id = m.pharmacy_id
+            WHERE m.quantity < ?
+            ORDER BY m.quantity ASC, m.id ASC
+            LIMIT ?
+        """;
+
+        try (Connection conn = DBConnection.getConnection()) {
+            assert conn != null;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, threshold);
+                stmt.setInt(2, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        lines.add(new LowStockLine(mapMedicine(rs), rs.getString("pharmacy_name")));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting low stock medicines: " + e.getMessage());
+        }
+        return lines;
+    }
+
+
+    // Keyset page: up to query's limit medicines with id above its afterId, in id order
+    public List<Medicine> getMedicinesAfter(MedicineQuery query) throws SQLException {
+        List<Medicine> medicines = new ArrayList<>();
+        forEachMedicine(query, medicines::add);
+        return medicines;
+    }
+
+    /**
+     * Calls action for every medicine the query selects, one row at a time, so memory use
+     * doesn't grow with the inventory. Returns how many rows were visited.
+     * A database error is thrown rather than logged, a caller must not mistake a cut-off read for the end of the data.
+     */
+    public long forEachMedicine(MedicineQuery query, Consumer<Medicine> action) throws SQLException {
+        long visited = 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            assert conn != null;
+            try (PreparedStatement stmt = conn.prepareStatement(query.toSql())) {
+                stmt.setFetchSize(query.getFetchSize());
+                query.bind(stmt);
+                List<MedicineColumn> columns = query.getColumns();
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        action.accept(mapMedicine(rs, columns));
+                        visited++;
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+
+    // Full row, by column name (SELECT * / m.*)
+    private static Medicine mapMedicine(ResultSet rs) throws SQLException {
+        return new Medicine(
+                rs.getInt("id"),
+                rs.getInt("pharmacy_id"),
+                rs.getString("name"),
+                rs.getString("generic_name"),
+                rs.getString("brand"),
+                rs.getDouble("price"),
+                rs.getInt("quantity"),
+                rs.getString("expiry_date")
+        );
+    }
+
+    // Projected row, columns in select-list order; the rest stay at their defaults
+    private static Medicine mapMedicine(ResultSet rs, List<MedicineColumn> columns) throws SQLException {
+        Medicine medicine = new Medicine(0, 0, null, null, null, 0.0, 0, null);
+        for (int i = 0; i < columns.size(); i++) {
+            columns.get(i).read(rs, i + 1, medicine);
+        }
+        return medicine;
+    }
+
+    // A low stock medicine and the pharmacy that holds it
+    public static class LowStockLine {
+        private final Medicine medicine;
+        private final String pharmacyName;
+
+        public LowStockLine(Medicine medicine, String pharmacyName) {
+            this.medicine = medicine;
+            this.pharmacyName = pharmacyName;
+        }
+
+        public Medicine getMedicine() {
+            return medicine;
+        }
+
+        public String getPharmacyName() {
+            return pharmacyName;
+        }
+    }
 }
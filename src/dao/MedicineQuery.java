@@ -0,0 +1,97 @@
+package dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * MedicineQuery - What to read with MedicineDAO.forEachMedicine / getMedicinesAfter.
+ * Rows always come in id order, so a large inventory can be read in pages by passing the last id
+ * seen as afterId (keyset paging, no OFFSET). Columns left out of columns() stay at their defaults
+ * (0 / null) in the returned Medicine objects; id is always read.
+ *
+ *   MedicineQuery.forPharmacy(3).afterId(lastId).limit(500).columns(MedicineColumn.NAME, MedicineColumn.QUANTITY)
+ */
+public class MedicineQuery {
+    private Integer pharmacyId;         // null = every pharmacy
+    private int afterId;
+    private int limit;                  // 0 = no limit
+    private int fetchSize = 500;
+    private Set<MedicineColumn> columns = EnumSet.allOf(MedicineColumn.class);
+
+    private MedicineQuery() {
+    }
+
+    public static MedicineQuery all() {
+        return new MedicineQuery();
+    }
+
+    public static MedicineQuery forPharmacy(int pharmacyId) {
+        MedicineQuery query = new MedicineQuery();
+        query.pharmacyId = pharmacyId;
+        return query;
+    }
+
+    public MedicineQuery afterId(int afterId) {
+        this.afterId = afterId;
+        return this;
+    }
+
+    public MedicineQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    // Rows the driver reads ahead per round trip
+    public MedicineQuery fetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    public MedicineQuery columns(MedicineColumn first, MedicineColumn... rest) {
+        EnumSet<MedicineColumn> selected = EnumSet.of(first, rest);
+        selected.add(MedicineColumn.ID);       // needed to continue from the last row
+        this.columns = selected;
+        return this;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    // Selected columns in select-list order
+    List<MedicineColumn> getColumns() {
+        return new ArrayList<>(columns);
+    }
+
+    String toSql() {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        List<MedicineColumn> selected = getColumns();
+        for (int i = 0; i < selected.size(); i++) {
+            sql.append(i > 0 ? ", " : "").append(selected.get(i).column);
+        }
+        sql.append(" FROM medicines WHERE id > ?");
+        if (pharmacyId != null) {
+            sql.append(" AND pharmacy_id = ?");
+        }
+        sql.append(" ORDER BY id");
+        if (limit > 0) {
+            sql.append(" LIMIT ?");
+        }
+        return sql.toString();
+    }
+
+    void bind(PreparedStatement stmt) throws SQLException {
+        int param = 1;
+        stmt.setInt(param++, afterId);
+        if (pharmacyId != null) {
+            stmt.setInt(param++, pharmacyId);
+        }
+        if (limit > 0) {
+            stmt.setInt(param, limit);
+        }
+    }
+}
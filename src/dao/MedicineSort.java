@@ -0,0 +1,53 @@
+package dao;
+
+import models.Medicine;
+
+// Sort options of the admin medicines table, done in SQL so only one page has to be loaded
+public enum MedicineSort {
+    QUANTITY_DESC("Quantity (High to Low)", "m.quantity", true),
+    QUANTITY_ASC("Quantity (Low to High)", "m.quantity", false),
+    NAME_ASC("Medicine Name (A-Z)", "m.name COLLATE NOCASE", false),
+    NAME_DESC("Medicine Name (Z-A)", "m.name COLLATE NOCASE", true),
+    PRICE_DESC("Price (High to Low)", "m.price", true),
+    PRICE_ASC("Price (Low to High)", "m.price", false);
+
+    private final String label;
+    final String column;
+    final boolean descending;
+
+    MedicineSort(String label, String column, boolean descending) {
+        this.label = label;
+        this.column = column;
+        this.descending = descending;
+    }
+
+    // ORDER BY with m.id as tie-breaker, so every row has a unique position to continue from
+    String orderBy() {
+        String direction = descending ? " DESC" : " ASC";
+        return column + direction + ", m.id" + direction;
+    }
+
+    // Rows after the given (sort value, id) in this order, as an SQLite row-value comparison
+    String after() {
+        return "(" + column + ", m.id) " + (descending ? "<" : ">") + " (?, ?)";
+    }
+
+    // The sort value of a row, bound into after()
+    Object valueOf(Medicine medicine) {
+        switch (this) {
+            case QUANTITY_DESC:
+            case QUANTITY_ASC:
+                return medicine.getQuantity();
+            case PRICE_DESC:
+            case PRICE_ASC:
+                return medicine.getPrice();
+            default:
+                return medicine.getName();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,207 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SchemaMigrator - Brings an existing database up to the current schema version.
+ * Every change after the base tables is a numbered Migration; the highest applied number is kept
+ * in schema_version so each step runs exactly once per database, in order, inside its own transaction.
+ * Each step takes the write lock first (BEGIN IMMEDIATE) and re-reads the version under it, so when two
+ * processes start on an old database at once (the app and ServerMain), the second waits and then skips
+ * the steps the first one applied.
+ * To change the schema, append a new Migration with the next version number - never edit an old one.
+ */
+public class SchemaMigrator {
+
+    private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+    static {
+        // users(email) is already covered by the UNIQUE constraint's automatic index
+        MIGRATIONS.add(new Migration(1, "Indexes for hot lookups",
+                "CREATE INDEX IF NOT EXISTS idx_medicines_pharmacy ON medicines(pharmacy_id, quantity)",
+                "CREATE INDEX IF NOT EXISTS idx_invoice_items_invoice ON invoice_items(invoice_id)",
+                "CREATE INDEX IF NOT EXISTS idx_pharmacies_user ON pharmacies(user_id)"));
+
+        // External-content FTS5 index over the searchable medicine text, the triggers keep it in sync.
+        // The update trigger only watches the indexed columns so stock changes don't touch the index.
+        MIGRATIONS.add(new Migration(2, "Full-text medicine search index",
+                """
+                CREATE VIRTUAL TABLE IF NOT EXISTS medicines_fts USING fts5(
+                    name, generic_name, brand,
+                    content='medicines', content_rowid='id',
+                    tokenize='unicode61 remove_diacritics 2',
+                    prefix='2 3'
+                )
+                """,
+                """
+                CREATE TRIGGER IF NOT EXISTS medicines_fts_insert AFTER INSERT ON medicines BEGIN
+                    INSERT INTO medicines_fts(rowid, name, generic_name, brand)
+                    VALUES (new.id, new.name, new.generic_name, new.brand);
+                END
+                """,
+                """
+                CREATE TRIGGER IF NOT EXISTS medicines_fts_delete AFTER DELETE ON medicines BEGIN
+                    INSERT INTO medicines_fts(medicines_fts, rowid, name, generic_name, brand)
+                    VALUES ('delete', old.id, old.name, old.generic_name, old.brand);
+                END
+                """,
+                """
+                CREATE TRIGGER IF NOT EXISTS medicines_fts_update AFTER UPDATE OF name, generic_name, brand ON medicines BEGIN
+                    INSERT INTO medicines_fts(medicines_fts, rowid, name, generic_name, brand)
+                    VALUES ('delete', old.id, old.name, old.generic_name, old.brand);
+                    INSERT INTO medicines_fts(rowid, name, generic_name, brand)
+                    VALUES (new.id, new.name, new.generic_name, new.brand);
+                END
+                """,
+                "INSERT INTO medicines_fts(medicines_fts) VALUES ('rebuild')"));
+        // one index per admin sort option, the rowid tie-breaker comes for free so keyset pages are index scans
+        MIGRATIONS.add(new Migration(3, "Indexes for paged medicine sorting",
+                "CREATE INDEX IF NOT EXISTS idx_medicines_quantity ON medicines(quantity)",
+                "CREATE INDEX IF NOT EXISTS idx_medicines_price ON medicines(price)",
+                "CREATE INDEX IF NOT EXISTS idx_medicines_name_nocase ON medicines(name COLLATE NOCASE)"));
+        // MedicineDAO streams and keyset pages one pharmacy in id order
+        MIGRATIONS.add(new Migration(4, "Index for per-pharmacy keyset paging",
+                "CREATE INDEX IF NOT EXISTS idx_medicines_pharmacy_id ON medicines(pharmacy_id, id)"));
+        // not UNIQUE: older databases may already hold the same stock line twice.
+        // The FTS update trigger fired whenever generic_name was in the SET list, even unchanged,
+        // so restocking re-tokenized every row; now it only runs when the text really changes.
+        MIGRATIONS.add(new Migration(5, "Index for inventory import upserts",
+                "CREATE INDEX IF NOT EXISTS idx_medicines_stock_line ON medicines(pharmacy_id, name, brand, expiry_date)",
+                "DROP TRIGGER IF EXISTS medicines_fts_update",
+                """
+                CREATE TRIGGER medicines_fts_update AFTER UPDATE OF name, generic_name, brand ON medicines
+                WHEN old.name IS NOT new.name OR old.generic_name IS NOT new.generic_name OR old.brand IS NOT new.brand
+                BEGIN
+                    INSERT INTO medicines_fts(medicines_fts, rowid, name, generic_name, brand)
+                    VALUES ('delete', old.id, old.name, old.generic_name, old.brand);
+                    INSERT INTO medicines_fts(rowid, name, generic_name, brand)
+                    VALUES (new.id, new.name, new.generic_name, new.brand);
+                END
+                """));
+        // Invoice files are rendered after the sale commits; a pending row survives a crash and is picked up
+        // on the next start. Items keep their brand so an invoice rebuilt from the database prints the same.
+        MIGRATIONS.add(new Migration(6, "Invoice render jobs",
+                """
+                CREATE TABLE IF NOT EXISTS invoice_render_jobs (
+                    invoice_id INTEGER PRIMARY KEY,
+                    status TEXT NOT NULL DEFAULT 'pending',
+                    attempts INTEGER NOT NULL DEFAULT 0,
+                    file_path TEXT,
+                    last_error TEXT,
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    FOREIGN KEY (invoice_id) REFERENCES invoices(id)
+                )
+                """,
+                "CREATE INDEX IF NOT EXISTS idx_invoice_render_jobs_status ON invoice_render_jobs(status, invoice_id)",
+                "ALTER TABLE invoice_items ADD COLUMN brand TEXT"));
+        // invoice export reads one pharmacy's invoices for a date range in created_at order
+        MIGRATIONS.add(new Migration(7, "Index for invoice export by date range",
+                "CREATE INDEX IF NOT EXISTS idx_invoices_pharmacy_created ON invoices(pharmacy_id, created_at)"));
+        // SessionStore's optional persistence, so logins survive a restart; keyed by the token's SHA-256, never the token
+        MIGRATIONS.add(new Migration(8, "Persistent login sessions",
+                """
+                CREATE TABLE IF NOT EXISTS sessions (
+                    token_hash TEXT PRIMARY KEY,
+                    user_id INTEGER NOT NULL,
+                    created_at INTEGER NOT NULL,
+                    last_seen_at INTEGER NOT NULL,
+                    ttl_ms INTEGER NOT NULL,
+                    FOREIGN KEY (user_id) REFERENCES users(id)
+                )
+                """));
+    }
+
+    public static void migrate(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                CREATE TABLE IF NOT EXISTS schema_version (
+                    version INTEGER PRIMARY KEY,
+                    description TEXT NOT NULL,
+                    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                );
+            """);
+        }
+
+        int currentVersion = getCurrentVersion(connection);
+        int applied = 0;
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version > currentVersion && apply(connection, migration)) {
+                applied++;
+            }
+        }
+
+        if (applied > 0) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA optimize");      //refresh planner statistics for the new indexes
+            }
+            System.out.println("Applied " + applied + " schema migration(s), now at version " + getLatestVersion());
+        }
+    }
+
+    public static int getCurrentVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    public static int getLatestVersion() {
+        return MIGRATIONS.isEmpty() ? 0 : MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    // false when another process applied the step between our version check and taking the lock
+    private static boolean apply(Connection connection, Migration migration) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(true);         // the transaction is begun by hand, the driver's BEGIN is DEFERRED
+        try (Statement statement = connection.createStatement();
+             PreparedStatement record = connection.prepareStatement(
+                     "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+
+            statement.execute("BEGIN IMMEDIATE");      // waits out another migrating process (busy_timeout)
+            try {
+                if (getCurrentVersion(connection) >= migration.version) {
+                    statement.execute("ROLLBACK");
+                    return false;
+                }
+                for (String sql : migration.statements) {
+                    statement.execute(sql);
+                }
+                record.setInt(1, migration.version);
+                record.setString(2, migration.description);
+                record.executeUpdate();
+
+                statement.execute("COMMIT");
+            } catch (SQLException e) {
+                try {
+                    statement.execute("ROLLBACK");
+                } catch (SQLException ignored) {
+                    // no transaction left to roll back
+                }
+                throw new SQLException("Schema migration " + migration.version + " failed: " + e.getMessage(), e);
+            }
+            System.out.println("Schema migration " + migration.version + " applied: " + migration.description);
+            return true;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static class Migration {
+        private final int version;
+        private final String description;
+        private final String[] statements;
+
+        Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+        }
+    }
+}
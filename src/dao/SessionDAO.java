@@ -0,0 +1,101 @@
+package dao;
+
+import models.Session;
+import models.User;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Sessions table behind SessionStore's optional persistence; only token hashes are stored
+public class SessionDAO {
+
+    public boolean insertSession(Session session) {
+        String sql = "INSERT OR REPLACE INTO sessions(token_hash, user_id, created_at, last_seen_at, ttl_ms) VALUES (?, ?, ?, ?, ?)";
+        try (Connection conn = DBConnection.getConnection()) {
+            assert conn != null;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, session.getTokenHash());
+                pstmt.setInt(2, session.getUser().getId());
+                pstmt.setLong(3, session.getCreatedAt());
+                pstmt.setLong(4, session.getLastSeenAt());
+                pstmt.setLong(5, session.getTtlMillis());
+                pstmt.executeUpdate();
+                return true;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error saving session: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public boolean deleteSession(String tokenHash) {
+        try (Connection conn = DBConnection.getConnection()) {
+            assert conn != null;
+            try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM sessions WHERE token_hash = ?")) {
+                pstmt.setString(1, tokenHash);
+                return pstmt.executeUpdate() > 0;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error deleting session: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Writes the sessions' last_seen_at in one transaction and drops rows that expired before now
+    public void syncSessions(Collection<Session> touched, long now) {
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            Connection conn = work.getConnection();
+            try (PreparedStatement pstmt = conn.prepareStatement("UPDATE sessions SET last_seen_at = ? WHERE token_hash = ?")) {
+                for (Session session : touched) {
+                    pstmt.setLong(1, session.getLastSeenAt());
+                    pstmt.setString(2, session.getTokenHash());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM sessions WHERE last_seen_at + ttl_ms <= ?")) {
+                pstmt.setLong(1, now);
+                pstmt.executeUpdate();
+            }
+            work.commit();
+        } catch (SQLException e) {
+            System.err.println("Error syncing sessions: " + e.getMessage());
+        }
+    }
+
+    // Sessions still valid at now, with their users, for a warm restart
+    public List<Session> getActiveSessions(long now) {
+        List<Session> sessions = new ArrayList<>();
+        String sql = """
+            SELECT s.token_hash, s.created_at, s.last_seen_at, s.ttl_ms,
+                   u.id, u.name, u.email, u.password, u.dateOfBirth, u.role
+            FROM sessions s
+            JOIN users u ON u.id = s.user_id
+            WHERE s.last_seen_at + s.ttl_ms > ?
+        """;
+        try (Connection conn = DBConnection.getConnection()) {
+            assert conn != null;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setLong(1, now);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        User user = new User(
+                                rs.getInt("id"),
+                                rs.getString("name"),
+                                rs.getString("email"),
+                                rs.getString("password"),
+                                rs.getString("dateOfBirth"),
+                                rs.getString("role"));
+                        sessions.add(new Session(null, rs.getString("token_hash"), user,
+                                rs.getLong("created_at"), rs.getLong("last_seen_at"), rs.getLong("ttl_ms")));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading sessions: " + e.getMessage());
+        }
+        return sessions;
+    }
+}
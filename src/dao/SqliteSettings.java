@@ -0,0 +1,119 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SqliteSettings - PRAGMA values applied to every physical connection the pool opens.
+ * A deployment picks a profile with -Dpharmapoint.db.profile and can override single values
+ * with -Dpharmapoint.db.journalMode, .synchronous, .mmapSize, .cacheSizeKb, .tempStore, .busyTimeoutMs
+ */
+public class SqliteSettings {
+
+    public enum Profile {
+        // single desktop terminal
+        DESKTOP("WAL", "NORMAL", 64L * 1024 * 1024, 16 * 1024, "MEMORY", 5_000),
+        // several counters writing invoices while patients search
+        COUNTER("WAL", "NORMAL", 256L * 1024 * 1024, 64 * 1024, "MEMORY", 10_000),
+        // small machines, keep the page cache and mapping small
+        LOW_MEMORY("WAL", "NORMAL", 0L, 2 * 1024, "DEFAULT", 5_000);
+
+        private final String journalMode;
+        private final String synchronous;
+        private final long mmapSize;
+        private final int cacheSizeKb;
+        private final String tempStore;
+        private final int busyTimeoutMs;
+
+        Profile(String journalMode, String synchronous, long mmapSize, int cacheSizeKb,
+                String tempStore, int busyTimeoutMs) {
+            this.journalMode = journalMode;
+            this.synchronous = synchronous;
+            this.mmapSize = mmapSize;
+            this.cacheSizeKb = cacheSizeKb;
+            this.tempStore = tempStore;
+            this.busyTimeoutMs = busyTimeoutMs;
+        }
+    }
+
+    private final Profile profile;
+    private final String journalMode;
+    private final String synchronous;
+    private final long mmapSize;
+    private final int cacheSizeKb;
+    private final String tempStore;
+    private final int busyTimeoutMs;
+
+    public SqliteSettings(Profile profile, String journalMode, String synchronous, long mmapSize,
+                          int cacheSizeKb, String tempStore, int busyTimeoutMs) {
+        this.profile = profile;
+        this.journalMode = requireKeyword(journalMode, "journalMode");
+        this.synchronous = requireKeyword(synchronous, "synchronous");
+        this.mmapSize = mmapSize;
+        this.cacheSizeKb = cacheSizeKb;
+        this.tempStore = requireKeyword(tempStore, "tempStore");
+        this.busyTimeoutMs = busyTimeoutMs;
+    }
+
+    public static SqliteSettings fromSystemProperties() {
+        Profile profile = Profile.valueOf(
+                System.getProperty("pharmapoint.db.profile", Profile.DESKTOP.name()).trim().toUpperCase());
+        return new SqliteSettings(
+                profile,
+                System.getProperty("pharmapoint.db.journalMode", profile.journalMode),
+                System.getProperty("pharmapoint.db.synchronous", profile.synchronous),
+                Long.getLong("pharmapoint.db.mmapSize", profile.mmapSize),
+                Integer.getInteger("pharmapoint.db.cacheSizeKb", profile.cacheSizeKb),
+                System.getProperty("pharmapoint.db.tempStore", profile.tempStore),
+                Integer.getInteger("pharmapoint.db.busyTimeoutMs", profile.busyTimeoutMs));
+    }
+
+    // PRAGMA values can't be bound as parameters, so only plain words are let through
+    private static String requireKeyword(String value, String name) {
+        if (value == null || !value.matches("[A-Za-z]+")) {
+            throw new IllegalArgumentException("Invalid SQLite setting " + name + ": " + value);
+        }
+        return value.toUpperCase();
+    }
+
+    public void apply(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            // busy_timeout first so switching journal mode waits for other connections instead of failing
+            statement.execute("PRAGMA busy_timeout = " + busyTimeoutMs);
+            statement.execute("PRAGMA journal_mode = " + journalMode);
+            statement.execute("PRAGMA synchronous = " + synchronous);
+            statement.execute("PRAGMA mmap_size = " + mmapSize);
+            statement.execute("PRAGMA cache_size = -" + cacheSizeKb);     //negative means KiB instead of pages
+            statement.execute("PRAGMA temp_store = " + tempStore);
+        }
+    }
+
+    // Reads back what SQLite actually uses, which can differ from what we asked for
+    public static Map<String, String> readEffective(Connection connection) throws SQLException {
+        Map<String, String> effective = new LinkedHashMap<>();
+        String[] pragmas = {"journal_mode", "synchronous", "mmap_size", "cache_size", "temp_store", "busy_timeout"};
+        try (Statement statement = connection.createStatement()) {
+            for (String pragma : pragmas) {
+                try (ResultSet rs = statement.executeQuery("PRAGMA " + pragma)) {
+                    effective.put(pragma, rs.next() ? rs.getString(1) : "?");
+                }
+            }
+        }
+        return effective;
+    }
+
+    public Profile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public String toString() {
+        return profile + " (journal_mode=" + journalMode + ", synchronous=" + synchronous
+                + ", mmap_size=" + mmapSize + ", cache_size=" + cacheSizeKb + "KiB, temp_store=" + tempStore
+                + ", busy_timeout=" + busyTimeoutMs + "ms)";
+    }
+}
@@ -0,0 +1,58 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * UnitOfWork - One pooled connection with one open transaction.
+ * Every DAO call that takes a Connection can run on getConnection(); nothing is visible to other
+ * connections until commit(). Closing without commit() rolls everything back.
+ *
+ *   try (UnitOfWork work = UnitOfWork.begin()) {
+ *       ... DAO calls on work.getConnection() ...
+ *       work.commit();
+ *   }
+ */
+public class UnitOfWork implements AutoCloseable {
+    private final Connection connection;
+    private boolean committed;
+
+    private UnitOfWork(Connection connection) {
+        this.connection = connection;
+    }
+
+    public static UnitOfWork begin() throws SQLException {
+        Connection connection = DBConnection.getConnection();
+        if (connection == null) {
+            throw new SQLException("No database connection available");
+        }
+        try {
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return new UnitOfWork(connection);
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public void commit() throws SQLException {
+        connection.commit();
+        committed = true;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (!committed) {
+                connection.rollback();
+            }
+            connection.setAutoCommit(true);
+        } finally {
+            connection.close();
+        }
+    }
+}
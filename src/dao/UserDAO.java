@@ -1,10 +1,9 @@
 package dao;
 
 import models.User;
+import utils.PasswordHasher;
+
 import java.sql.*;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,7 +19,7 @@ public class UserDAO {
                 pstmt.setString(1, user.getName());
                 pstmt.setString(2, user.getEmail());
                 // Hash the password before storing
-                String hashed = hashPassword(user.getPassword());
+                String hashed = PasswordHasher.hash(user.getPassword());
                 pstmt.setString(3, hashed);
                 pstmt.setString(4, user.getDateOfBirth());
                 pstmt.setString(5, user.getRole());
@@ -35,49 +34,43 @@ public class UserDAO {
         }
     }
 
+    // One lookup by the unique email index, the password is checked in memory. A legacy or cheaper
+    // hash is replaced with a fresh one on success, so old accounts upgrade as their owners log in.
     public User findByEmailAndPassword(String email, String password) {
-        String sql = "SELECT * FROM users WHERE email = ? AND password = ?";
+        User user = findByEmail(email);
+        if (user == null) {
+            PasswordHasher.verifyDummy(password);       // an unknown email shouldn't answer faster than a wrong password
+            return null;
+        }
+        if (!PasswordHasher.verify(password, user.getPassword())) {
+            return null;
+        }
+
+        if (PasswordHasher.needsRehash(user.getPassword())) {
+            String upgraded = PasswordHasher.hash(password);
+            if (updatePasswordHash(user.getId(), user.getPassword(), upgraded)) {
+                user.setPassword(upgraded);
+            }
+        }
+        return user;
+    }
+
+    // Compare-and-set, so a password changed meanwhile on another session isn't overwritten
+    public boolean updatePasswordHash(int userId, String expectedHash, String newHash) {
+        String sql = "UPDATE users SET password = ? WHERE id = ? AND password = ?";
 
         try (Connection conn = DBConnection.getConnection()) {
             assert conn != null;
             try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-                pstmt.setString(1, email);
-                // First try with hashed password (for new users)
-                pstmt.setString(2, hashPassword(password));
-                ResultSet rs = pstmt.executeQuery();
-
-                if (rs.next()) {
-                    return new User(
-                            rs.getInt("id"),
-                            rs.getString("name"),
-                            rs.getString("email"),
-                            rs.getString("password"),
-                            rs.getString("dateOfBirth"),
-                            rs.getString("role"));
-                }
-                
-                // If not found, try with plain text password (for existing users)
-                pstmt.setString(2, password);
-                rs = pstmt.executeQuery();
-                
-                if (rs.next()) {
-                    // Found with plain text password, return user
-                    User user = new User(
-                            rs.getInt("id"),
-                            rs.getString("name"),
-                            rs.getString("email"),
-                            rs.getString("password"),
-                            rs.getString("dateOfBirth"),
-                            rs.getString("role"));             
-                    return user;
-                }
+                pstmt.setString(1, newHash);
+                pstmt.setInt(2, userId);
+                pstmt.setString(3, expectedHash);
+                return pstmt.executeUpdate() > 0;
             }
         } catch (SQLException e) {
-            System.err.println("Find user failed: " + e.getMessage());
+            System.err.println("Password rehash failed: " + e.getMessage());
+            return false;
         }
-
-        return null;
     }
     
     public User findByEmail(String email) {
@@ -133,20 +126,4 @@ public class UserDAO {
 
         return users;
     }
-
-    // Helper to hash passwords using SHA-256
-    private static String hashPassword(String password) {
-        if (password == null) return null;
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hashedBytes = md.digest(password.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashedBytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 algorithm not available", e);
-        }
-    }
 }
@@ -32,7 +32,6 @@ public class Invoice {
     }
 
     // Constructor for invoices loaded from DB(after searching by ID)
-    //notUsed
     public Invoice(int id, int pharmacyId, String patientName, String patientPhone, 
                    double totalAmount, LocalDateTime createdAt, List<SaleItem> items) {
         this.id = id;
@@ -110,6 +109,15 @@ public class Invoice {
         this.id = id;
     }
 
+    // For invoices loaded from DB, the pharmacy details live in the pharmacies table
+    public void setPharmacyName(String pharmacyName) {
+        this.pharmacyName = pharmacyName;
+    }
+
+    public void setPharmacyArea(String pharmacyArea) {
+        this.pharmacyArea = pharmacyArea;
+    }
+
     @Override
     public String toString() {  //this is used in FinalInvoiceFormUI/showFullInvoice method to show the invoice in text area
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,36 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// A pharmacy from a patient search together with the in-stock medicines that matched the request
+public class PharmacyMatch {
+    private final Pharmacy pharmacy;
+    private final List<Medicine> availableMedicines = new ArrayList<>();
+    private final Set<String> seenMedicines = new HashSet<>();     // name + brand, to skip duplicate stock rows
+    private final BitSet coveredTerms = new BitSet();              // bit i = requested medicine i is in stock here
+
+    public PharmacyMatch(Pharmacy pharmacy) {
+        this.pharmacy = pharmacy;
+    }
+
+    // Marks requested medicine termIndex as covered and adds the medicine unless one with the same
+    // name and brand is already listed (it can match more than one requested name)
+    public boolean addMedicine(int termIndex, Medicine medicine) {
+        coveredTerms.set(termIndex);
+        String key = medicine.getName() + '\u0000' + medicine.getBrand();
+        if (!seenMedicines.add(key)) {
+            return false;
+        }
+        availableMedicines.add(medicine);
+        return true;
+    }
+
+    public Pharmacy getPharmacy() { return pharmacy; }
+    public List<Medicine> getAvailableMedicines() { return availableMedicines; }
+    public BitSet getCoveredTerms() { return coveredTerms; }
+    public int getCoveredCount() { return coveredTerms.cardinality(); }
+}
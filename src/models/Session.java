@@ -0,0 +1,60 @@
+package models;
+
+/**
+ * Session - One logged-in user, as held by SessionStore.
+ * The raw token is only known to the session that issued it (and to the client it was handed to);
+ * the store and the sessions table key sessions by the token's hash.
+ */
+public class Session {
+    private final String token;         // null for sessions restored from the database
+    private final String tokenHash;
+    private final User user;
+    private final long createdAt;       // epoch millis
+    private final long ttlMillis;       // idle time after which the session expires
+    private volatile long lastSeenAt;
+
+    public Session(String token, String tokenHash, User user, long createdAt, long lastSeenAt, long ttlMillis) {
+        this.token = token;
+        this.tokenHash = tokenHash;
+        this.user = user;
+        this.createdAt = createdAt;
+        this.lastSeenAt = lastSeenAt;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getLastSeenAt() {
+        return lastSeenAt;
+    }
+
+    public void setLastSeenAt(long lastSeenAt) {
+        this.lastSeenAt = lastSeenAt;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public long getExpiresAt() {
+        return lastSeenAt + ttlMillis;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= getExpiresAt();
+    }
+}
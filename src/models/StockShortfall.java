@@ -0,0 +1,33 @@
+package models;
+
+// One sale line that couldn't be taken out of stock, with how much was actually left
+public class StockShortfall {
+    private int medicineId;
+    private String medicineName;
+    private int requestedQuantity;
+    private int availableQuantity;      // -1 when the medicine no longer exists
+
+    public StockShortfall(int medicineId, String medicineName, int requestedQuantity, int availableQuantity) {
+        this.medicineId = medicineId;
+        this.medicineName = medicineName;
+        this.requestedQuantity = requestedQuantity;
+        this.availableQuantity = availableQuantity;
+    }
+
+    public int getMedicineId() { return medicineId; }
+    public String getMedicineName() { return medicineName; }
+    public int getRequestedQuantity() { return requestedQuantity; }
+    public int getAvailableQuantity() { return availableQuantity; }
+
+    public boolean isMissing() {
+        return availableQuantity < 0;
+    }
+
+    @Override
+    public String toString() {
+        if (isMissing()) {
+            return medicineName + ": no longer in inventory";
+        }
+        return medicineName + ": requested " + requestedQuantity + ", only " + availableQuantity + " in stock";
+    }
+}
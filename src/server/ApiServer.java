@@ -0,0 +1,589 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import models.Invoice;
+import models.Medicine;
+import models.Pharmacy;
+import models.SaleItem;
+import models.Session;
+import models.StockShortfall;
+import models.User;
+import services.AuthService;
+import services.InvoiceRenderQueue;
+import services.InvoiceService;
+import services.MedicineService;
+import services.PharmacySearchService;
+import services.PharmacyService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ApiServer - The service layer as JSON over HTTP, on the JDK's built-in server.
+ * Every request runs on its own virtual thread when the JVM has them (Java 21+), otherwise on a
+ * bounded platform-thread pool. Either way at most maxConcurrent requests do work at once; a request
+ * that can't get a slot within acquireTimeout is answered 503 with Retry-After instead of piling up,
+ * and when the fallback pool's queue is full the request is answered 503 straight away.
+ *
+ * Clients log in once and send the token as "Authorization: Bearer <token>"; pharmacists act on
+ * their own pharmacy only.
+ *
+ *   GET  /health
+ *   POST /api/login                 {"email", "password"} -> {"token", "user"}
+ *   POST /api/logout
+ *   GET  /api/me
+ *   GET  /api/medicines             own pharmacy's stock in id order, ?after=<next>&limit= pages it (admins: ?pharmacyId=)
+ *   GET  /api/medicines/search?q=   medicines by name across pharmacies
+ *   POST /api/pharmacies/search     {"medicines": [...], "limit"} -> pharmacies ranked by availability
+ *   POST /api/checkout              {"patientName", "patientPhone", "items": [{"medicineId", "quantity"}]}
+ *   GET  /api/invoices/{id}/status  invoice file render status
+ *
+ * stop() stops accepting connections, lets running requests finish within the drain time and then
+ * shuts the executor down.
+ */
+public class ApiServer {
+
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    private static final int MAX_SEARCH_RESULTS = 200;
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 2000;
+
+    // set while the fallback pool's rejection handler runs a request on the accepting thread
+    private static final ThreadLocal<Boolean> SHED = new ThreadLocal<>();
+
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Semaphore slots;
+    private final int maxConcurrent;
+    private final long acquireTimeoutMillis;
+    private volatile boolean stopping;
+
+    private final AuthService authService = new AuthService();
+    private final MedicineService medicineService = new MedicineService();
+    private final PharmacySearchService pharmacySearchService = new PharmacySearchService();
+    private final InvoiceService invoiceService = new InvoiceService();
+    private final PharmacyService pharmacyService = new PharmacyService();
+
+    // Metrics
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public ApiServer(InetSocketAddress address, int maxConcurrent, long acquireTimeoutMillis, int queueCapacity) throws IOException {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.slots = new Semaphore(this.maxConcurrent, true);
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newBoundedPool(this.maxConcurrent, queueCapacity);
+
+        this.http = HttpServer.create(address, 0);
+        this.http.setExecutor(executor);
+        this.http.createContext("/", this::handle);
+    }
+
+    public void start() {
+        http.start();
+        System.out.println("API server listening on " + getAddress() + " ("
+                + (virtualThreads ? "virtual threads" : "thread pool") + ", " + maxConcurrent + " concurrent requests)");
+    }
+
+    public InetSocketAddress getAddress() {
+        return http.getAddress();
+    }
+
+    // Graceful: no new connections, running requests get up to drainSeconds to finish
+    public void stop(int drainSeconds) {
+        stopping = true;
+        http.stop(drainSeconds);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(drainSeconds, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("API server stopped: " + this);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() when running on Java 21+, null before that;
+    // looked up reflectively so the code still builds and runs on Java 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newBoundedPool(int threads, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "pharmapoint-api-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (request, pool) -> {
+                    // overloaded: answer 503 right here on the accepting thread, without doing the work
+                    SHED.set(Boolean.TRUE);
+                    try {
+                        request.run();
+                    } finally {
+                        SHED.remove();
+                    }
+                });
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (stopping || SHED.get() != null) {
+                shed.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 503, error(stopping ? "Server is shutting down" : "Server is busy, try again"));
+                return;
+            }
+            boolean acquired;
+            try {
+                acquired = slots.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+            if (!acquired) {
+                shed.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 503, error("Server is busy, try again"));
+                return;
+            }
+            try {
+                send(exchange, 200, route(exchange));
+                served.incrementAndGet();
+            } catch (ApiException e) {
+                send(exchange, e.status, e.body);
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, error(e.getMessage()));
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                System.err.println("API error on " + exchange.getRequestURI().getPath() + ": " + e);
+                send(exchange, 500, error("Internal error"));
+            } finally {
+                slots.release();
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+
+        switch (path) {
+            case "/health":
+                requireMethod(method, "GET");
+                return new Json.Writer().beginObject()
+                        .field("status", "ok")
+                        .field("activeRequests", maxConcurrent - slots.availablePermits())
+                        .field("served", served.get())
+                        .field("shed", shed.get())
+                        .endObject().toString();
+            case "/api/login":
+                requireMethod(method, "POST");
+                return login(readBody(exchange));
+            case "/api/logout":
+                requireMethod(method, "POST");
+                authService.logout(bearerToken(exchange));
+                return new Json.Writer().beginObject().field("loggedOut", true).endObject().toString();
+            case "/api/me":
+                requireMethod(method, "GET");
+                return writeUser(new Json.Writer(), requireUser(exchange)).toString();
+            case "/api/medicines":
+                requireMethod(method, "GET");
+                return listMedicines(requireUser(exchange), queryParameters(exchange));
+            case "/api/medicines/search":
+                requireMethod(method, "GET");
+                requireUser(exchange);
+                return searchMedicines(queryParameters(exchange).get("q"));
+            case "/api/pharmacies/search":
+                requireMethod(method, "POST");
+                requireUser(exchange);
+                return searchPharmacies(readBody(exchange));
+            case "/api/checkout":
+                requireMethod(method, "POST");
+                return checkout(requirePharmacist(exchange), readBody(exchange));
+            default:
+                if (path.startsWith("/api/invoices/") && path.endsWith("/status")) {
+                    requireMethod(method, "GET");
+                    return invoiceStatus(requirePharmacist(exchange), path.substring("/api/invoices/".length(), path.length() - "/status".length()));
+                }
+                throw new ApiException(404, "No such endpoint: " + path);
+        }
+    }
+
+    // Endpoints
+
+    private String login(Map<String, Object> body) {
+        String email = requireString(body, "email");
+        String password = requireString(body, "password");
+        Session session = authService.login(email, password);
+        if (session == null) {
+            throw new ApiException(401, "Invalid email or password");
+        }
+        Json.Writer json = new Json.Writer().beginObject().field("token", session.getToken()).name("user");
+        writeUser(json, session.getUser());
+        return json.endObject().toString();
+    }
+
+    private String listMedicines(User user, Map<String, String> query) {
+        int pharmacyId;
+        if ("admin".equals(user.getRole()) && query.containsKey("pharmacyId")) {
+            pharmacyId = parseId(query.get("pharmacyId"));
+        } else {
+            pharmacyId = ownPharmacy(user).getId();
+        }
+        int after = query.containsKey("after") ? parseId(query.get("after")) : 0;
+        int limit = query.containsKey("limit") ? Math.max(1, Math.min(parseId(query.get("limit")), MAX_PAGE_SIZE)) : DEFAULT_PAGE_SIZE;
+
+        // keyset paging: one row past the page tells whether there is a next one, no OFFSET or COUNT needed
+        List<Medicine> page;
+        try {
+            page = medicineService.getMedicinesAfter(pharmacyId, after, limit + 1);
+        } catch (SQLException e) {
+            // a short page would read as the last one, so a failed read is an error, never a partial answer
+            failed.incrementAndGet();
+            System.err.println("Error reading medicines of pharmacy " + pharmacyId + ": " + e.getMessage());
+            throw new ApiException(500, "Couldn't read the medicines, try again");
+        }
+        boolean more = page.size() > limit;
+        Json.Writer json = new Json.Writer().beginObject().field("pharmacyId", pharmacyId).name("medicines").beginArray();
+        for (Medicine medicine : page.subList(0, Math.min(page.size(), limit))) {
+            writeMedicine(json, medicine);
+        }
+        json.endArray().name("next");
+        if (more) {
+            json.value(page.get(limit - 1).getId());
+        } else {
+            json.value((String) null);      // last page
+        }
+        return json.endObject().toString();
+    }
+
+    private String searchMedicines(String keyword) {
+        if (keyword == null || keyword.isBlank()) {
+            throw new IllegalArgumentException("Query parameter q is required");
+        }
+        List<Medicine> medicines = medicineService.searchMedicineByName(keyword.trim());
+        Json.Writer json = new Json.Writer().beginObject().field("total", medicines.size()).name("medicines").beginArray();
+        for (Medicine medicine : medicines.subList(0, Math.min(medicines.size(), MAX_SEARCH_RESULTS))) {
+            writeMedicine(json, medicine);
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    private String searchPharmacies(Map<String, Object> body) {
+        List<String> requested = new ArrayList<>();
+        for (Object name : requireList(body, "medicines")) {
+            if (name instanceof String && !((String) name).isBlank()) {
+                requested.add(((String) name).trim());
+            }
+        }
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("medicines must list at least one name");
+        }
+        int limit = body.containsKey("limit") ? Math.max(1, Math.min(requireInt(body, "limit"), MAX_SEARCH_RESULTS)) : 20;
+
+        PharmacySearchService.PharmacySearchResult result = pharmacySearchService.findPharmaciesForMedicines(requested, limit);
+        Json.Writer json = new Json.Writer().beginObject().name("pharmacies").beginArray();
+        for (PharmacySearchService.PharmacyAvailability availability : result.getRankedPharmacies(0, limit)) {
+            Pharmacy pharmacy = availability.getPharmacy();
+            json.beginObject()
+                    .field("id", pharmacy.getId())
+                    .field("name", pharmacy.getName())
+                    .field("address", pharmacy.getAddress())
+                    .field("area", pharmacy.getArea())
+                    .field("available", availability.getAvailableCount())
+                    .field("requested", availability.getTotalRequested())
+                    .field("complete", availability.hasAllMedicines())
+                    .name("medicines").beginArray();
+            for (Medicine medicine : availability.getAvailableMedicines()) {
+                writeMedicine(json, medicine);
+            }
+            json.endArray().endObject();
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    private String checkout(User user, Map<String, Object> body) {
+        Pharmacy pharmacy = ownPharmacy(user);
+        String patientName = requireString(body, "patientName");
+        Object phone = body.get("patientPhone");
+
+        // merged by medicine, so the same medicine twice is one line with the summed quantity
+        Map<Integer, SaleItem> lines = new LinkedHashMap<>();
+        for (Object entry : requireList(body, "items")) {
+            if (!(entry instanceof Map)) {
+                throw new IllegalArgumentException("items must be objects with medicineId and quantity");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> item = (Map<String, Object>) entry;
+            int medicineId = requireInt(item, "medicineId");
+            int quantity = requireInt(item, "quantity");
+            if (quantity <= 0) {
+                throw new IllegalArgumentException("quantity must be positive");
+            }
+            SaleItem line = lines.get(medicineId);
+            if (line != null) {
+                line.setQuantity(line.getQuantity() + quantity);
+                continue;
+            }
+            Medicine medicine = medicineService.getMedicineById(medicineId);
+            if (medicine == null || medicine.getPharmacyId() != pharmacy.getId()) {
+                throw new ApiException(404, "No medicine " + medicineId + " in this pharmacy");
+            }
+            lines.put(medicineId, new SaleItem(medicine, quantity));
+        }
+        if (lines.isEmpty()) {
+            throw new IllegalArgumentException("items must not be empty");
+        }
+
+        Invoice invoice = invoiceService.createInvoice(pharmacy.getId(), patientName,
+                phone instanceof String ? (String) phone : "", new ArrayList<>(lines.values()), pharmacy);
+        InvoiceService.CheckoutResult result = invoiceService.checkout(invoice);
+        if (!result.isSuccess()) {
+            if (result.getShortfalls().isEmpty()) {
+                throw new ApiException(500, result.getMessage());
+            }
+            Json.Writer json = new Json.Writer().beginObject()
+                    .field("error", result.getMessage())
+                    .name("shortfalls").beginArray();
+            for (StockShortfall shortfall : result.getShortfalls()) {
+                json.beginObject()
+                        .field("medicineId", shortfall.getMedicineId())
+                        .field("name", shortfall.getMedicineName())
+                        .field("requested", shortfall.getRequestedQuantity())
+                        .field("available", shortfall.getAvailableQuantity())
+                        .endObject();
+            }
+            throw new ApiException(409, result.getMessage(), json.endArray().endObject().toString());
+        }
+        return new Json.Writer().beginObject()
+                .field("invoiceId", result.getInvoiceId())
+                .field("total", invoice.getTotalAmount())
+                .endObject().toString();
+    }
+
+    private String invoiceStatus(User user, String id) {
+        int invoiceId = parseId(id);
+        // another pharmacy's invoice looks the same as one that doesn't exist
+        if (!invoiceService.isIssuedBy(invoiceId, ownPharmacy(user).getId())) {
+            throw new ApiException(404, "No invoice " + invoiceId + " in this pharmacy");
+        }
+        InvoiceRenderQueue.RenderJob job = InvoiceRenderQueue.getShared().getStatus(invoiceId);
+        if (job == null) {
+            throw new ApiException(404, "No recent render job for invoice " + invoiceId);
+        }
+        return new Json.Writer().beginObject()
+                .field("invoiceId", invoiceId)
+                .field("status", job.getStatus().name())
+                .field("attempts", job.getAttempts())
+                .field("error", job.getLastError())
+                .endObject().toString();
+    }
+
+    // Authentication and authorization
+
+    private User requireUser(HttpExchange exchange) {
+        User user = authService.getSessionUser(bearerToken(exchange));
+        if (user == null) {
+            throw new ApiException(401, "Log in first (Authorization: Bearer <token>)");
+        }
+        return user;
+    }
+
+    private User requirePharmacist(HttpExchange exchange) {
+        User user = requireUser(exchange);
+        if (!"pharmacist".equals(user.getRole())) {
+            throw new ApiException(403, "Only pharmacists can do this");
+        }
+        return user;
+    }
+
+    private Pharmacy ownPharmacy(User user) {
+        Pharmacy pharmacy = pharmacyService.getPharmacyByUserId(user.getId());
+        if (pharmacy == null) {
+            throw new ApiException(403, "No pharmacy registered for this account");
+        }
+        return pharmacy;
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    // Request and response plumbing
+
+    private static void requireMethod(String method, String expected) {
+        if (!expected.equals(method)) {
+            throw new ApiException(405, "Use " + expected);
+        }
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new ApiException(413, "Request body over " + MAX_BODY_BYTES + " bytes");
+            }
+            if (body.length == 0) {
+                throw new IllegalArgumentException("Request body is empty");
+            }
+            return Json.parseObject(new String(body, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            parameters.putIfAbsent(name, value);
+        }
+        return parameters;
+    }
+
+    private static String requireString(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof String) || ((String) value).isBlank()) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        return ((String) value).trim();
+    }
+
+    private static int requireInt(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof Double) || (Double) value != Math.rint((Double) value) || Math.abs((Double) value) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(name + " must be a whole number");
+        }
+        return ((Double) value).intValue();
+    }
+
+    private static List<?> requireList(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException(name + " must be a list");
+        }
+        return (List<?>) value;
+    }
+
+    private static int parseId(String id) {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not an id: " + id);
+        }
+    }
+
+    private static Json.Writer writeUser(Json.Writer json, User user) {
+        return json.beginObject()
+                .field("id", user.getId())
+                .field("name", user.getName())
+                .field("email", user.getEmail())
+                .field("role", user.getRole())
+                .endObject();
+    }
+
+    private static void writeMedicine(Json.Writer json, Medicine medicine) {
+        json.beginObject()
+                .field("id", medicine.getId())
+                .field("pharmacyId", medicine.getPharmacyId())
+                .field("name", medicine.getName())
+                .field("genericName", medicine.getGenericName())
+                .field("brand", medicine.getBrand())
+                .field("price", medicine.getPrice())
+                .field("quantity", medicine.getQuantity())
+                .field("expiryDate", medicine.getExpiryDate())
+                .endObject();
+    }
+
+    private static String error(String message) {
+        return new Json.Writer().beginObject().field("error", message).endObject().toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    public long getServed() {
+        return served.get();
+    }
+
+    public long getShed() {
+        return shed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ApiServer{served=%d, shed=%d, failed=%d, active=%d}",
+                getServed(), getShed(), getFailed(), maxConcurrent - slots.availablePermits());
+    }
+
+
+    // An error answer, sent as {"error": message} or as a prepared JSON body
+    private static class ApiException extends RuntimeException {
+        private final int status;
+        private final String body;
+
+        ApiException(int status, String message) {
+            this(status, message, error(message));
+        }
+
+        ApiException(int status, String message, String body) {
+            super(message);
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
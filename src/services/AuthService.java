@@ -1,6 +1,7 @@
 package services;
 
 import dao.UserDAO;
+import models.Session;
 import models.User;
 
 //just taking email and pass, returning the user object if user is in the DB
@@ -31,4 +32,20 @@ public class AuthService {
             return null;
         }
     }
+
+    // Checks the credentials and opens a session in the shared SessionStore, or returns null;
+    // hand session.getToken() to the client, it's needed for every later call
+    public Session login(String email, String password) {
+        User user = authenticateUser(email, password);
+        return user != null ? SessionStore.getShared().issue(user) : null;
+    }
+
+    // The user behind a token, or null once it expired or was logged out
+    public User getSessionUser(String token) {
+        return SessionStore.getShared().getUser(token);
+    }
+
+    public boolean logout(String token) {
+        return SessionStore.getShared().revoke(token);
+    }
 }
@@ -0,0 +1,257 @@
+package services;
+
+import dao.UnitOfWork;
+import models.Invoice;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GroupCommitInvoiceWriter - Optional checkout path for busy counters.
+ * Concurrent checkouts are queued and a single flusher thread writes them together in one SQLite
+ * transaction, so N invoices share one commit instead of paying for N. A batch is flushed once it holds
+ * maxBatchSize invoices or its oldest invoice has waited maxLatencyMs, whichever comes first.
+ * Each invoice runs under its own savepoint, so a shortfall in one sale doesn't undo the others,
+ * and every caller still gets its own CheckoutResult with its own generated invoice id.
+ *
+ * Enabled with -Dpharmapoint.groupCommit.enabled=true; tuned with .maxBatchSize, .maxLatencyMs, .queueCapacity
+ */
+public class GroupCommitInvoiceWriter {
+
+    private static volatile GroupCommitInvoiceWriter shared;
+    private static final PendingCheckout SHUTDOWN = new PendingCheckout(null);      // queued by close() to stop the flusher
+
+    private final InvoiceService invoiceService = new InvoiceService();
+    private final MedicineService medicineService = new MedicineService();
+    private final int maxBatchSize;
+    private final long maxLatencyNanos;
+    private final BlockingQueue<PendingCheckout> queue;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    // Metrics
+    private final AtomicLong batchesCommitted = new AtomicLong();
+    private final AtomicLong invoicesWritten = new AtomicLong();
+    private final AtomicLong batchesFailed = new AtomicLong();
+
+    public GroupCommitInvoiceWriter(int maxBatchSize, long maxLatencyMs, int queueCapacity) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMs);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flusher = new Thread(this::runFlusher, "pharmapoint-invoice-group-commit");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("pharmapoint.groupCommit.enabled");
+    }
+
+    public static GroupCommitInvoiceWriter getShared() {
+        GroupCommitInvoiceWriter current = shared;
+        if (current == null) {
+            synchronized (GroupCommitInvoiceWriter.class) {
+                current = shared;
+                if (current == null) {
+                    current = new GroupCommitInvoiceWriter(
+                            Integer.getInteger("pharmapoint.groupCommit.maxBatchSize", 64),
+                            Long.getLong("pharmapoint.groupCommit.maxLatencyMs", 5L),
+                            Integer.getInteger("pharmapoint.groupCommit.queueCapacity", 1024));
+                    shared = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public static synchronized void shutdownShared() {
+        if (shared != null) {
+            shared.close();
+            shared = null;
+        }
+    }
+
+    // Queues the checkout; blocks while the queue is full so producers can't outrun the database
+    public CompletableFuture<InvoiceService.CheckoutResult> submit(Invoice invoice) {
+        PendingCheckout pending = new PendingCheckout(invoice);
+        if (!running) {
+            pending.future.complete(InvoiceService.CheckoutResult.failed("Invoice writer is shut down"));
+            return pending.future;
+        }
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future.complete(InvoiceService.CheckoutResult.failed("Interrupted while queueing invoice"));
+            return pending.future;
+        }
+        // close() may have run between the check above and put(); whoever takes the checkout off the
+        // queue completes it, if nobody has we take it back ourselves
+        if (!running && queue.remove(pending)) {
+            pending.future.complete(InvoiceService.CheckoutResult.failed("Invoice writer is shut down"));
+        }
+        return pending.future;
+    }
+
+    public InvoiceService.CheckoutResult checkout(Invoice invoice) {
+        return submit(invoice).join();
+    }
+
+    private void runFlusher() {
+        List<PendingCheckout> batch = new ArrayList<>(maxBatchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                PendingCheckout first = queue.take();
+                if (first == SHUTDOWN) {
+                    break;
+                }
+                batch.add(first);
+
+                // keep collecting until the batch is full or the oldest invoice has waited long enough
+                long deadline = first.enqueuedAt + maxLatencyNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingCheckout next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    if (next == SHUTDOWN) {
+                        stopping = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // close() never interrupts; whatever was collected so far is still written below
+            }
+            writeBatch(batch);
+        }
+
+        // checkouts queued before close() are still written, the shutdown marker is always last
+        while (queue.drainTo(batch, maxBatchSize) > 0) {
+            batch.removeIf(pending -> pending == SHUTDOWN);
+            writeBatch(batch);
+        }
+    }
+
+    // Every checkout in the batch gets its future completed, whatever happens
+    private void writeBatch(List<PendingCheckout> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            flush(batch);
+        } catch (RuntimeException e) {
+            System.err.println("Invoice group commit failed: " + e.getMessage());
+            failAll(batch, "Invoice group commit failed: " + e.getMessage());
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private void flush(List<PendingCheckout> batch) {
+        List<InvoiceService.CheckoutResult> results = new ArrayList<>(batch.size());
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            Connection connection = work.getConnection();
+            for (PendingCheckout pending : batch) {
+                results.add(checkoutUnderSavepoint(connection, pending.invoice));
+            }
+            work.commit();
+        } catch (SQLException e) {
+            batchesFailed.incrementAndGet();
+            System.err.println("Invoice group commit failed: " + e.getMessage());
+            failAll(batch, "Checkout failed: " + e.getMessage());
+            return;
+        }
+
+        batchesCommitted.incrementAndGet();
+        invoicesWritten.addAndGet(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (results.get(i).isSuccess()) {
+                medicineService.onSaleCommitted(batch.get(i).invoice.getItems());
+            }
+            batch.get(i).future.complete(results.get(i));
+        }
+    }
+
+    private InvoiceService.CheckoutResult checkoutUnderSavepoint(Connection connection, Invoice invoice) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            InvoiceService.CheckoutResult result = invoiceService.checkout(connection, invoice);
+            if (!result.isSuccess()) {
+                connection.rollback(savepoint);
+            }
+            connection.releaseSavepoint(savepoint);
+            return result;
+        } catch (SQLException e) {
+            connection.rollback(savepoint);
+            connection.releaseSavepoint(savepoint);
+            invoice.setId(0);
+            return InvoiceService.CheckoutResult.failed("Checkout failed: " + e.getMessage());
+        }
+    }
+
+    private static void failAll(List<PendingCheckout> batch, String message) {
+        for (PendingCheckout pending : batch) {
+            pending.invoice.setId(0);       //nothing in this batch was committed
+            pending.future.complete(InvoiceService.CheckoutResult.failed(message));
+        }
+    }
+
+    // Stops accepting work and waits for the invoices already queued to be written.
+    // The flusher is woken with a marker at the end of the queue, not an interrupt, so no batch it holds is lost.
+    public void close() {
+        running = false;
+        try {
+            if (queue.offer(SHUTDOWN, 10, TimeUnit.SECONDS)) {
+                flusher.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // whatever the flusher didn't get to (it timed out or had already stopped) must not hang its caller
+        List<PendingCheckout> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.removeIf(pending -> pending == SHUTDOWN);
+        failAll(left, "Invoice writer is shut down");
+    }
+
+    public long getBatchesCommitted() {
+        return batchesCommitted.get();
+    }
+
+    public long getInvoicesWritten() {
+        return invoicesWritten.get();
+    }
+
+    public long getBatchesFailed() {
+        return batchesFailed.get();
+    }
+
+    public double getAverageBatchSize() {
+        long batches = batchesCommitted.get();
+        return batches == 0 ? 0.0 : invoicesWritten.get() / (double) batches;
+    }
+
+    private static class PendingCheckout {
+        private final Invoice invoice;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<InvoiceService.CheckoutResult> future = new CompletableFuture<>();
+
+        PendingCheckout(Invoice invoice) {
+            this.invoice = invoice;
+        }
+    }
+}
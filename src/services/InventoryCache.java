@@ -0,0 +1,173 @@
+package services;
+
+import models.Medicine;
+import models.SaleItem;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * InventoryCache - Per-pharmacy medicine catalog kept in memory.
+ * Opening the sell screen or the stock table reads from here instead of re-running
+ * SELECT * FROM medicines WHERE pharmacy_id = ?. At most maxPharmacies catalogs are kept,
+ * the least recently used one is dropped first.
+ *
+ * Writes go to the database first and are then applied here (write-through), so every
+ * change to the medicines table made by the app has to come through MedicineService or
+ * call one of the update methods below. Callers always get copies, never the cached objects.
+ *
+ * Sized with -Dpharmapoint.cache.maxPharmacies (default 32)
+ */
+public class InventoryCache {
+
+    private static final InventoryCache shared =
+            new InventoryCache(Integer.getInteger("pharmapoint.cache.maxPharmacies", 32));
+
+    private final int maxPharmacies;
+    private final LinkedHashMap<Integer, LinkedHashMap<Integer, Medicine>> catalogs;   // pharmacy id -> (medicine id -> medicine)
+    private long writeVersion;      // bumped by every write, so a load that raced with a write isn't cached
+
+    // Metrics
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public InventoryCache(int maxPharmacies) {
+        if (maxPharmacies < 1) {
+            throw new IllegalArgumentException("maxPharmacies must be at least 1");
+        }
+        this.maxPharmacies = maxPharmacies;
+        // access order, so the eldest entry is the least recently used catalog
+        this.catalogs = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, LinkedHashMap<Integer, Medicine>> eldest) {
+                if (size() > InventoryCache.this.maxPharmacies) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static InventoryCache getShared() {
+        return shared;
+    }
+
+    // Copy of the cached catalog, or null when the pharmacy isn't cached
+    public synchronized List<Medicine> get(int pharmacyId) {
+        LinkedHashMap<Integer, Medicine> catalog = catalogs.get(pharmacyId);
+        if (catalog == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        List<Medicine> copy = new ArrayList<>(catalog.size());
+        for (Medicine medicine : catalog.values()) {
+            copy.add(copyOf(medicine));
+        }
+        return copy;
+    }
+
+    // Read before loading a catalog from the database and pass to put()
+    public synchronized long getWriteVersion() {
+        return writeVersion;
+    }
+
+    // Caches a catalog loaded from the database, unless something was written since loadVersion
+    public synchronized void put(int pharmacyId, List<Medicine> medicines, long loadVersion) {
+        if (loadVersion != writeVersion) {
+            return;
+        }
+        LinkedHashMap<Integer, Medicine> catalog = new LinkedHashMap<>();
+        for (Medicine medicine : medicines) {
+            catalog.put(medicine.getId(), copyOf(medicine));
+        }
+        catalogs.put(pharmacyId, catalog);
+    }
+
+    // A medicine was added or changed, the row as it now is in the database
+    public synchronized void upsert(Medicine medicine) {
+        writeVersion++;
+        removeFromOtherPharmacies(medicine.getId(), medicine.getPharmacyId());
+        LinkedHashMap<Integer, Medicine> catalog = catalogs.get(medicine.getPharmacyId());
+        if (catalog != null) {
+            catalog.put(medicine.getId(), copyOf(medicine));     // replaces, the old object may still be in a caller's hands
+        }
+    }
+
+    public synchronized void remove(int medicineId) {
+        writeVersion++;
+        removeFromOtherPharmacies(medicineId, -1);
+    }
+
+    // A committed sale, takes the sold quantities out of the cached stock
+    public synchronized void applySale(List<SaleItem> items) {
+        writeVersion++;
+        for (SaleItem item : items) {
+            LinkedHashMap<Integer, Medicine> catalog = catalogs.get(item.getMedicine().getPharmacyId());
+            Medicine cached = catalog != null ? catalog.get(item.getMedicine().getId()) : null;
+            if (cached != null) {
+                Medicine updated = copyOf(cached);
+                updated.setQuantity(cached.getQuantity() - item.getQuantity());
+                catalog.put(updated.getId(), updated);
+            }
+        }
+    }
+
+    // For writes that bypass MedicineService (bulk imports, manual SQL)
+    public synchronized void invalidate(int pharmacyId) {
+        writeVersion++;
+        catalogs.remove(pharmacyId);
+    }
+
+    public synchronized void invalidateAll() {
+        writeVersion++;
+        catalogs.clear();
+    }
+
+    private void removeFromOtherPharmacies(int medicineId, int keepPharmacyId) {
+        Iterator<Map.Entry<Integer, LinkedHashMap<Integer, Medicine>>> entries = catalogs.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Integer, LinkedHashMap<Integer, Medicine>> entry = entries.next();
+            if (entry.getKey() != keepPharmacyId) {
+                entry.getValue().remove(medicineId);
+            }
+        }
+    }
+
+    private static Medicine copyOf(Medicine medicine) {
+        return new Medicine(medicine.getId(), medicine.getPharmacyId(), medicine.getName(), medicine.getGenericName(),
+                medicine.getBrand(), medicine.getPrice(), medicine.getQuantity(), medicine.getExpiryDate());
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : hits / (double) lookups;
+    }
+
+    public synchronized int size() {
+        return catalogs.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("catalogs=%d/%d hits=%d misses=%d hitRate=%.1f%% evictions=%d",
+                catalogs.size(), maxPharmacies, hits, misses, getHitRate() * 100.0, evictions);
+    }
+}
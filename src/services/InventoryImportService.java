@@ -0,0 +1,247 @@
+package services;
+
+import dao.MedicineDAO;
+import dao.UnitOfWork;
+import models.Medicine;
+import utils.DelimitedFileReader;
+import utils.Validator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * InventoryImportService - Loads a supplier's CSV/TSV stock file into one pharmacy.
+ * The file is read one record at a time, every row is checked with the same rules as the
+ * add medicine form, and valid rows are written in chunks of chunkSize, one transaction per
+ * chunk. A row whose (name, brand, expiry date) is already in stock updates that line instead
+ * of adding a second one. Bad rows are skipped and listed in the report with their line number.
+ *
+ * The header row names the columns, in any order:
+ *   name, generic_name, brand, price, quantity, expiry_date
+ *
+ * Chunk size from -Dpharmapoint.import.chunkSize (default 2000)
+ */
+public class InventoryImportService {
+
+    public enum Mode {
+        ADD_TO_STOCK,       // a delivery: existing quantity + imported quantity
+        REPLACE_STOCK       // a stock count: imported quantity replaces the existing one
+    }
+
+    private static final int MAX_REPORTED_REJECTIONS = 1000;
+    private static final String[] REQUIRED_COLUMNS = {"name", "generic_name", "brand", "price", "quantity", "expiry_date"};
+
+    private final MedicineDAO medicineDAO = new MedicineDAO();
+    private final int chunkSize = Integer.getInteger("pharmapoint.import.chunkSize", 2000);
+
+    public ImportReport importFile(Path file, int pharmacyId, Mode mode) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(reader, pharmacyId, mode);
+        } catch (IOException e) {
+            System.err.println("Inventory import failed: " + e.getMessage());
+            return ImportReport.failed("Couldn't read " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    public ImportReport importFrom(Reader source, int pharmacyId, Mode mode) throws IOException {
+        long started = System.nanoTime();
+        ImportReport report = new ImportReport();
+
+        BufferedReader buffered = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source, 1 << 16);
+        buffered.mark(1 << 16);
+        String headerLine = buffered.readLine();
+        if (headerLine == null) {
+            return ImportReport.failed("The file is empty");
+        }
+        buffered.reset();
+
+        try (DelimitedFileReader reader = new DelimitedFileReader(buffered, DelimitedFileReader.detectDelimiter(headerLine))) {
+            Map<String, Integer> columns = mapColumns(reader.readRecord());
+            for (String required : REQUIRED_COLUMNS) {
+                if (!columns.containsKey(required)) {
+                    return ImportReport.failed("Missing column: " + required);
+                }
+            }
+
+            // keyed by stock line, so a line repeated inside one chunk is merged instead of inserted twice
+            Map<String, Medicine> chunk = new LinkedHashMap<>();
+            List<String> fields;
+            while ((fields = reader.readRecord()) != null) {
+                report.rowsRead++;
+                Medicine medicine = toMedicine(fields, columns, pharmacyId, mode, reader.getRecordLineNumber(), report);
+                if (medicine == null) {
+                    continue;
+                }
+                String key = medicine.getName() + '\u0000' + medicine.getBrand() + '\u0000' + medicine.getExpiryDate();
+                Medicine earlier = chunk.putIfAbsent(key, medicine);
+                if (earlier != null) {
+                    earlier.setGenericName(medicine.getGenericName());
+                    earlier.setPrice(medicine.getPrice());
+                    earlier.setQuantity(mode == Mode.ADD_TO_STOCK ? earlier.getQuantity() + medicine.getQuantity() : medicine.getQuantity());
+                    report.merged++;
+                }
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, mode, report);
+                }
+            }
+            writeChunk(chunk, mode, report);
+        } finally {
+            if (report.inserted + report.updated > 0) {
+                InventoryCache.getShared().invalidate(pharmacyId);      // written behind MedicineService's back
+            }
+            report.elapsedNanos = System.nanoTime() - started;
+        }
+        System.out.println("Inventory import for pharmacy " + pharmacyId + ": " + report.getSummary());
+        return report;
+    }
+
+    // header name -> position, accepting "Generic Name", "generic-name", "qty", "expiry" and the like
+    private static Map<String, Integer> mapColumns(List<String> header) {
+        Map<String, Integer> columns = new LinkedHashMap<>();
+        if (header == null) {
+            return columns;
+        }
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT).replaceAll("[\\s-]+", "_");
+            switch (name) {
+                case "generic": name = "generic_name"; break;
+                case "qty": name = "quantity"; break;
+                case "expiry": case "expiry_date_yyyy_mm_dd": case "expires": name = "expiry_date"; break;
+                default: break;
+            }
+            columns.putIfAbsent(name, i);
+        }
+        return columns;
+    }
+
+    private static Medicine toMedicine(List<String> fields, Map<String, Integer> columns, int pharmacyId, Mode mode,
+                                       long lineNumber, ImportReport report) {
+        String name = field(fields, columns, "name");
+        String genericName = field(fields, columns, "generic_name");
+        String brand = field(fields, columns, "brand");
+        String price = field(fields, columns, "price");
+        String quantity = field(fields, columns, "quantity");
+        String expiryDate = field(fields, columns, "expiry_date");
+
+        String error = Validator.getMedicineRowError(name, genericName, brand, price, quantity, expiryDate,
+                mode == Mode.REPLACE_STOCK);      // a stock count may find a line sold out
+        if (!error.isEmpty()) {
+            report.reject(lineNumber, error);
+            return null;
+        }
+        try {
+            java.sql.Date.valueOf(expiryDate);      // the format check doesn't catch month 13
+        } catch (IllegalArgumentException e) {
+            report.reject(lineNumber, "Expiry date is not a real date.");
+            return null;
+        }
+        return new Medicine(pharmacyId, name, genericName, brand, Double.parseDouble(price), Integer.parseInt(quantity), expiryDate);
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        int index = columns.get(column);
+        return index < fields.size() ? fields.get(index).trim() : "";
+    }
+
+    private void writeChunk(Map<String, Medicine> chunk, Mode mode, ImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            int[] counts = medicineDAO.upsertMedicines(work.getConnection(), chunk.values(), mode == Mode.ADD_TO_STOCK);
+            work.commit();
+            report.updated += counts[0];
+            report.inserted += counts[1];
+        } catch (SQLException e) {
+            // the whole chunk rolled back, the rows after it are still tried
+            System.err.println("Inventory import chunk failed: " + e.getMessage());
+            report.failedRows += chunk.size();
+            report.error = "Some rows couldn't be saved: " + e.getMessage();
+        }
+        chunk.clear();
+    }
+
+
+    public static class ImportReport {
+        private long rowsRead;
+        private long inserted;
+        private long updated;
+        private long merged;            // repeated stock lines folded into an earlier row of the file
+        private long rejected;
+        private long failedRows;        // valid rows lost to a database error
+        private long elapsedNanos;
+        private String error;
+        private final List<String> rejectedLines = new ArrayList<>();
+
+        static ImportReport failed(String message) {
+            ImportReport report = new ImportReport();
+            report.error = message;
+            return report;
+        }
+
+        private void reject(long lineNumber, String reason) {
+            rejected++;
+            if (rejectedLines.size() < MAX_REPORTED_REJECTIONS) {
+                rejectedLines.add("Line " + lineNumber + ": " + reason);
+            }
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        public long getUpdated() {
+            return updated;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getFailedRows() {
+            return failedRows;
+        }
+
+        // At most the first 1000, see getRejected() for the full count
+        public List<String> getRejectedLines() {
+            return Collections.unmodifiableList(rejectedLines);
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1_000_000_000.0;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : rowsRead / getElapsedSeconds();
+        }
+
+        public String getSummary() {
+            String summary = String.format("%d rows read, %d added, %d updated, %d merged, %d rejected in %.2fs (%.0f rows/s)",
+                    rowsRead, inserted, updated, merged, rejected, getElapsedSeconds(), getRowsPerSecond());
+            return error == null ? summary : summary + " - " + error;
+        }
+    }
+}
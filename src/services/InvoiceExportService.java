@@ -0,0 +1,250 @@
+package services;
+
+import dao.InvoiceDAO;
+import models.Invoice;
+import utils.PDFGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * InvoiceExportService - Re-renders a pharmacy's invoices for a date range into one zip archive.
+ * Invoices are streamed from the database in date order, rendered to PDF on a worker pool and
+ * written to the archive by the calling thread, in the same order. At most maxInFlight rendered
+ * invoices wait for the writer at any time, so memory stays flat no matter how many invoices the
+ * range holds: when the window is full, reading pauses until the oldest one is written.
+ *
+ * The archive is written to a .part file and moved in place when complete, so a failed or
+ * cancelled export (interrupt the calling thread) never leaves a truncated zip behind. A database
+ * error partway through fails the export too, instead of passing off the invoices read so far as all of them.
+ *
+ * Tuned with -Dpharmapoint.export.threads and -Dpharmapoint.export.inFlight
+ */
+public class InvoiceExportService {
+
+    // Called on the exporting thread after each invoice is written (use SwingUtilities.invokeLater or publish for UI work)
+    public interface ProgressListener {
+        void onProgress(int exported, int total);
+    }
+
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    private final InvoiceDAO invoiceDAO = new InvoiceDAO();
+    private final int threads = Integer.getInteger("pharmapoint.export.threads", Runtime.getRuntime().availableProcessors());
+    private final int maxInFlight = Integer.getInteger("pharmapoint.export.inFlight", Math.max(4, threads * 4));
+
+    // from and to are both included
+    public ExportReport exportInvoices(int pharmacyId, LocalDate from, LocalDate to, Path archive, ProgressListener progress) {
+        long started = System.nanoTime();
+        ExportReport report = new ExportReport();
+        report.total = invoiceDAO.countInvoices(pharmacyId, from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+
+        Path partial = archive.resolveSibling(archive.getFileName() + ".part");
+        ExecutorService renderers = newRenderPool();
+        ArrayDeque<Future<RenderedInvoice>> inFlight = new ArrayDeque<>(maxInFlight);
+        try {
+            if (archive.getParent() != null) {
+                Files.createDirectories(archive.getParent());
+            }
+            try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(partial), 1 << 16))) {
+                zip.setComment("PharmaPoint invoices " + from + " to " + to);
+                zip.setLevel(Deflater.BEST_SPEED);        // PDFs are text, fastest level is still ~2.4x smaller and deflate is most of the export time
+                try {
+                    invoiceDAO.forEachInvoice(pharmacyId, from.atStartOfDay(), to.plusDays(1).atStartOfDay(), invoice -> {
+                        if (inFlight.size() >= maxInFlight) {
+                            writeNext(inFlight, zip, report, progress);       // backpressure: wait for the oldest
+                        }
+                        inFlight.add(renderers.submit(() -> render(invoice)));
+                    });
+                    while (!inFlight.isEmpty() && !Thread.currentThread().isInterrupted()) {
+                        writeNext(inFlight, zip, report, progress);
+                    }
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException();
+                }
+                // every invoice counted up front has to be accounted for, or the archive is missing some
+                if (report.exported + report.failed < report.total) {
+                    throw new SQLException("only " + (report.exported + report.failed) + " of " + report.total + " invoices were read");
+                }
+            }
+            Files.move(partial, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            report.archivePath = archive.toAbsolutePath().toString();
+            report.archiveBytes = Files.size(archive);
+        } catch (CancellationException e) {
+            report.error = "Export cancelled";
+        } catch (IOException e) {
+            System.err.println("Invoice export failed: " + e.getMessage());
+            report.error = "Couldn't write " + archive.getFileName() + ": " + e.getMessage();
+        } catch (SQLException e) {
+            System.err.println("Invoice export failed: " + e.getMessage());
+            report.error = "Couldn't read the invoices: " + e.getMessage();
+        } finally {
+            for (Future<RenderedInvoice> pending : inFlight) {
+                pending.cancel(true);
+            }
+            renderers.shutdownNow();
+            if (report.archivePath == null) {
+                try {
+                    Files.deleteIfExists(partial);
+                } catch (IOException e) {
+                    System.err.println("Couldn't remove " + partial + ": " + e.getMessage());
+                }
+            }
+            report.elapsedNanos = System.nanoTime() - started;
+        }
+        System.out.println("Invoice export for pharmacy " + pharmacyId + ": " + report.getSummary());
+        return report;
+    }
+
+    private ExecutorService newRenderPool() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "pharmapoint-invoice-export-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Runs on a render thread; PDFGenerator keeps one writer per thread, only the output buffer is new
+    private static RenderedInvoice render(Invoice invoice) throws IOException {
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream(4096 + invoice.getItems().size() * 128);
+        PDFGenerator.writeInvoice(invoice, Channels.newChannel(pdf));
+        return new RenderedInvoice(invoice, pdf);
+    }
+
+    // Writes the oldest in-flight invoice to the archive; a render failure skips that invoice, a write failure ends the export
+    private static void writeNext(ArrayDeque<Future<RenderedInvoice>> inFlight, ZipOutputStream zip,
+                                  ExportReport report, ProgressListener progress) {
+        Future<RenderedInvoice> next = inFlight.poll();
+        RenderedInvoice rendered;
+        try {
+            rendered = next.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();     // cancelled, the caller sees the flag and stops
+            return;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            report.fail(cause.getMessage() != null ? cause.getMessage() : cause.toString());
+            return;
+        }
+
+        try {
+            ZipEntry entry = new ZipEntry(PDFGenerator.getFileName(rendered.invoice));
+            entry.setTime(rendered.invoice.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            zip.putNextEntry(entry);
+            rendered.pdf.writeTo(zip);
+            zip.closeEntry();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        report.exported++;
+        report.pdfBytes += rendered.pdf.size();
+        if (progress != null) {
+            progress.onProgress(report.exported, Math.max(report.total, report.exported));
+        }
+    }
+
+
+    private static final class RenderedInvoice {
+        private final Invoice invoice;
+        private final ByteArrayOutputStream pdf;
+
+        RenderedInvoice(Invoice invoice, ByteArrayOutputStream pdf) {
+            this.invoice = invoice;
+            this.pdf = pdf;
+        }
+    }
+
+    public static class ExportReport {
+        private int total;              // invoices in the range when the export started
+        private int exported;
+        private int failed;
+        private long pdfBytes;          // uncompressed
+        private long archiveBytes;
+        private long elapsedNanos;
+        private String archivePath;
+        private String error;
+        private final List<String> failures = new ArrayList<>();
+
+        private void fail(String reason) {
+            failed++;
+            if (failures.size() < MAX_REPORTED_FAILURES) {
+                failures.add(reason);
+            }
+        }
+
+        public boolean isSuccess() {
+            return error == null && failed == 0;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getExported() {
+            return exported;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        // At most the first 100, see getFailed() for the full count
+        public List<String> getFailures() {
+            return Collections.unmodifiableList(failures);
+        }
+
+        // null unless the archive was completely written
+        public String getArchivePath() {
+            return archivePath;
+        }
+
+        public long getArchiveBytes() {
+            return archiveBytes;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1_000_000_000.0;
+        }
+
+        public double getInvoicesPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : exported / getElapsedSeconds();
+        }
+
+        public String getSummary() {
+            String summary = String.format("%d of %d invoices exported, %d failed, %.1f MB of PDFs in a %.1f MB archive, %.2fs (%.0f invoices/s)",
+                    exported, total, failed, pdfBytes / 1048576.0, archiveBytes / 1048576.0,
+                    getElapsedSeconds(), getInvoicesPerSecond());
+            return error == null ? summary : summary + " - " + error;
+        }
+    }
+}
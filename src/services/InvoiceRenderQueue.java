@@ -0,0 +1,306 @@
+package services;
+
+import dao.InvoiceDAO;
+import models.Invoice;
+import utils.PDFGenerator;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * InvoiceRenderQueue - Writes invoice files in the background, after the sale has committed.
+ * Checkout stores a pending row in invoice_render_jobs on the same transaction as the invoice, so
+ * a sale never waits for its file and a file is never lost: if the app dies before rendering, the row
+ * is still pending and gets rendered on the next start (resumePending) or by the periodic sweep.
+ *
+ * Renders run on a small bounded pool. A failed render is retried with exponential backoff
+ * (1s, 2s, 4s, ...) and marked failed after maxAttempts. When the pool's queue is full the job just
+ * stays pending in the table and the sweep picks it up later.
+ *
+ * Callers follow a job with getStatus(invoiceId) or subscribe(invoiceId, listener).
+ *
+ * Tuned with -Dpharmapoint.render.threads, .queueCapacity, .maxAttempts, .sweepSeconds
+ */
+public class InvoiceRenderQueue {
+
+    public enum Status {
+        PENDING, RENDERING, DONE, FAILED
+    }
+
+    private static final int MAX_TRACKED_JOBS = 1000;
+    private static final long BASE_RETRY_DELAY_MS = 1000;
+    private static final int SWEEP_BATCH = 200;
+
+    private static volatile InvoiceRenderQueue shared;
+
+    private final InvoiceDAO invoiceDAO = new InvoiceDAO();
+    private final int maxAttempts;
+    private final ThreadPoolExecutor renderers;
+    private final ScheduledExecutorService scheduler;       // retries and the sweep, never renders itself
+
+    // invoice id -> latest state; only recent jobs are kept, the table is the record
+    private final Map<Integer, RenderJob> jobs = new LinkedHashMap<>(64, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, RenderJob> eldest) {
+            return size() > MAX_TRACKED_JOBS && eldest.getValue().isFinished();
+        }
+    };
+    private final Map<Integer, List<Consumer<RenderJob>>> listeners = new LinkedHashMap<>();
+
+    // Metrics
+    private final AtomicLong rendered = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public InvoiceRenderQueue(int threads, int queueCapacity, int maxAttempts, long sweepSeconds) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.renderers = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "pharmapoint-invoice-render-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.renderers.allowCoreThreadTimeOut(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pharmapoint-invoice-render-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (sweepSeconds > 0) {
+            scheduler.scheduleWithFixedDelay(this::resumePending, sweepSeconds, sweepSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public static InvoiceRenderQueue getShared() {
+        InvoiceRenderQueue current = shared;
+        if (current == null) {
+            synchronized (InvoiceRenderQueue.class) {
+                current = shared;
+                if (current == null) {
+                    current = new InvoiceRenderQueue(
+                            Integer.getInteger("pharmapoint.render.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+                            Integer.getInteger("pharmapoint.render.queueCapacity", 256),
+                            Integer.getInteger("pharmapoint.render.maxAttempts", 5),
+                            Long.getLong("pharmapoint.render.sweepSeconds", 30L));
+                    shared = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public static synchronized void shutdownShared() {
+        if (shared != null) {
+            shared.close();
+            shared = null;
+        }
+    }
+
+    // Call after the invoice's checkout committed; the invoice in hand saves reloading it from the database
+    public void submit(Invoice invoice) {
+        enqueue(invoice.getId(), invoice, 0);
+    }
+
+    // Queues every job still pending in the table, e.g. at startup after a crash
+    public void resumePending() {
+        List<Integer> pending = invoiceDAO.getPendingRenderJobs(SWEEP_BATCH);
+        int resumed = 0;
+        for (int invoiceId : pending) {
+            synchronized (this) {
+                RenderJob job = jobs.get(invoiceId);
+                if (job != null && !job.isFinished()) {
+                    continue;       // already queued or waiting for a retry
+                }
+            }
+            if (!enqueue(invoiceId, null, 0)) {
+                break;      // pool is full, the next sweep continues
+            }
+            resumed++;
+        }
+        if (resumed > 0) {
+            System.out.println("Resumed " + resumed + " pending invoice render job(s)");
+        }
+    }
+
+    public synchronized RenderJob getStatus(int invoiceId) {
+        return jobs.get(invoiceId);
+    }
+
+    // listener gets every change of the job on a render thread (use SwingUtilities.invokeLater for UI work);
+    // if the job already finished it's called right away
+    public void subscribe(int invoiceId, Consumer<RenderJob> listener) {
+        RenderJob finished;
+        synchronized (this) {
+            RenderJob job = jobs.get(invoiceId);
+            if (job == null || !job.isFinished()) {
+                listeners.computeIfAbsent(invoiceId, id -> new CopyOnWriteArrayList<>()).add(listener);
+                return;
+            }
+            finished = job;
+        }
+        listener.accept(finished);
+    }
+
+    private boolean enqueue(int invoiceId, Invoice invoice, int attempts) {
+        publish(new RenderJob(invoiceId, Status.PENDING, attempts, null, null));
+        try {
+            renderers.execute(() -> render(invoiceId, invoice, attempts + 1));
+            return true;
+        } catch (RejectedExecutionException e) {
+            // stays pending in the table, the sweep tries again
+            System.err.println("Invoice render queue full, invoice " + invoiceId + " left pending");
+            synchronized (this) {
+                jobs.remove(invoiceId);
+            }
+            return false;
+        }
+    }
+
+    private void render(int invoiceId, Invoice inMemory, int attempt) {
+        publish(new RenderJob(invoiceId, Status.RENDERING, attempt, null, null));
+
+        String error;
+        try {
+            Invoice invoice = inMemory != null ? inMemory : invoiceDAO.getInvoiceById(invoiceId);
+            if (invoice == null) {
+                error = "Invoice not found";
+            } else {
+                String path = PDFGenerator.generateInvoiceFile(invoice);
+                if (path != null) {
+                    invoiceDAO.updateRenderJob(invoiceId, "done", attempt, path, null);
+                    rendered.incrementAndGet();
+                    publish(new RenderJob(invoiceId, Status.DONE, attempt, path, null));
+                    return;
+                }
+                error = "Invoice file couldn't be written";
+            }
+        } catch (RuntimeException e) {
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+
+        if (attempt < maxAttempts && !scheduler.isShutdown()) {
+            retried.incrementAndGet();
+            invoiceDAO.updateRenderJob(invoiceId, "pending", attempt, null, error);
+            publish(new RenderJob(invoiceId, Status.PENDING, attempt, null, error));
+            long delay = BASE_RETRY_DELAY_MS << Math.min(attempt - 1, 10);
+            try {
+                scheduler.schedule(() -> enqueue(invoiceId, inMemory, attempt), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // shutting down, the row is still pending for the next start
+            }
+        } else {
+            failed.incrementAndGet();
+            System.err.println("Giving up rendering invoice " + invoiceId + " after " + attempt + " attempt(s): " + error);
+            invoiceDAO.updateRenderJob(invoiceId, "failed", attempt, null, error);
+            publish(new RenderJob(invoiceId, Status.FAILED, attempt, null, error));
+        }
+    }
+
+    private void publish(RenderJob job) {
+        List<Consumer<RenderJob>> subscribers;
+        synchronized (this) {
+            jobs.remove(job.invoiceId);     // re-insert so the map stays in order of last change
+            jobs.put(job.invoiceId, job);
+            subscribers = job.isFinished() ? listeners.remove(job.invoiceId) : listeners.get(job.invoiceId);
+        }
+        if (subscribers != null) {
+            for (Consumer<RenderJob> listener : subscribers) {
+                try {
+                    listener.accept(job);
+                } catch (RuntimeException e) {
+                    System.err.println("Invoice render listener failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Stops taking work and gives running renders a few seconds; anything unfinished stays pending in the table
+    public void close() {
+        scheduler.shutdownNow();
+        renderers.shutdown();
+        try {
+            if (!renderers.awaitTermination(5, TimeUnit.SECONDS)) {
+                List<Runnable> dropped = renderers.shutdownNow();
+                System.out.println("Invoice render queue stopped, " + dropped.size() + " job(s) left for the next start");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getRendered() {
+        return rendered.get();
+    }
+
+    public long getRetried() {
+        return retried.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public int getQueuedCount() {
+        return renderers.getQueue().size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InvoiceRenderQueue{rendered=%d, retried=%d, failed=%d, queued=%d}",
+                getRendered(), getRetried(), getFailed(), getQueuedCount());
+    }
+
+
+    // Immutable snapshot of one job, a new one is published on every change
+    public static class RenderJob {
+        private final int invoiceId;
+        private final Status status;
+        private final int attempts;
+        private final String filePath;
+        private final String lastError;
+
+        RenderJob(int invoiceId, Status status, int attempts, String filePath, String lastError) {
+            this.invoiceId = invoiceId;
+            this.status = status;
+            this.attempts = attempts;
+            this.filePath = filePath;
+            this.lastError = lastError;
+        }
+
+        public int getInvoiceId() {
+            return invoiceId;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        public String getLastError() {
+            return lastError;
+        }
+
+        public boolean isFinished() {
+            return status == Status.DONE || status == Status.FAILED;
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package services;
 
 import dao.InvoiceDAO;
+import dao.UnitOfWork;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
 import java.util.List;
 import models.Invoice;
 import models.Pharmacy;
 import models.SaleItem;
-import utils.PDFGenerator;
+import models.StockShortfall;
 
 public class InvoiceService {
     private final InvoiceDAO invoiceDAO = new InvoiceDAO();
@@ -13,68 +17,138 @@ public class InvoiceService {
 
 
     public boolean saveInvoice(Invoice invoice) {
-
-        if (!medicineService.sellMedicines(invoice.getItems())) {           //calling sellMedicines method which will update in the DB 
-                                                                            // like reduce the quantity of medicines sold
-            System.err.println("Failed to update medicine inventory");
+        CheckoutResult result = checkout(invoice);
+        if (!result.isSuccess()) {
+            System.err.println("Failed to save invoice: " + result.getMessage());
             return false;
         }
+        return true;
+    }
 
-        // Save invoice to database
-        boolean saved = invoiceDAO.saveInvoice(invoice);
-        if (!saved) {
-            System.err.println("Failed to save invoice to database");
-            return false;
+    //the whole sale as one unit of work: stock decrement, invoice header and invoice items
+    //share one connection and one commit, so a failure anywhere leaves the database untouched
+    public CheckoutResult checkout(Invoice invoice) {
+        CheckoutResult result = commitCheckout(invoice);
+        if (result.isSuccess()) {
+            InvoiceRenderQueue.getShared().submit(invoice);     //the invoice file is written in the background
         }
+        return result;
+    }
 
-        return true;
+    private CheckoutResult commitCheckout(Invoice invoice) {
+        if (GroupCommitInvoiceWriter.isEnabled()) {
+            return GroupCommitInvoiceWriter.getShared().checkout(invoice);      //shares a commit with other counters' sales
+        }
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            CheckoutResult result = checkout(work.getConnection(), invoice);
+            if (result.isSuccess()) {
+                try {
+                    work.commit();
+                } catch (SQLException e) {
+                    invoice.setId(0);       //the generated id was never committed
+                    throw e;
+                }
+                medicineService.onSaleCommitted(invoice.getItems());    //keep the cached catalog in step with the new stock
+            }
+            return result;
+        } catch (SQLException e) {
+            System.err.println("Checkout failed: " + e.getMessage());
+            return CheckoutResult.failed("Checkout failed: " + e.getMessage());
+        }
+    }
+
+    // Runs the checkout on a transaction the caller owns; the caller commits on success and rolls back otherwise,
+    // and after a commit calls MedicineService.onSaleCommitted() with the sold items and
+    // InvoiceRenderQueue.submit() with the invoice
+    public CheckoutResult checkout(Connection connection, Invoice invoice) throws SQLException {
+        MedicineService.SaleResult sale = medicineService.reserveStock(connection, invoice.getItems());   //reduce the quantity of medicines sold
+        if (!sale.isSuccess()) {
+            return CheckoutResult.rejected(sale.getShortfalls(), sale.getMessage());
+        }
+
+        if (!invoiceDAO.insertInvoice(connection, invoice)) {
+            return CheckoutResult.failed("Failed to save invoice to database");
+        }
+        invoiceDAO.insertRenderJob(connection, invoice.getId());       //committed together, so no invoice ends up without its file
+        return CheckoutResult.completed(invoice.getId());
+    }
+
+    //whether the invoice was issued by the given pharmacy; false for an unknown invoice
+    public boolean isIssuedBy(int invoiceId, int pharmacyId) {
+        return invoiceDAO.getInvoicePharmacyId(invoiceId) == pharmacyId;
     }
 
     
-    //save invoice in DB by calling saveInvoice and then generate PDF file by calling generateInvoiceFile
+    //save invoice in DB; the file is rendered afterwards by InvoiceRenderQueue, follow it with
+    //InvoiceRenderQueue.getShared().subscribe(invoice.getId(), ...) instead of waiting for it here
     public SaveInvoiceResult saveInvoiceWithPDF(Invoice invoice) {
-        // First save the invoice normally in DB
-        boolean saved = saveInvoice(invoice);
-        if (!saved) {
-            return new SaveInvoiceResult(false, null, "Failed to save invoice to database");
+        CheckoutResult checkout = checkout(invoice);
+        if (!checkout.isSuccess()) {
+            return new SaveInvoiceResult(false, checkout.getMessage());
+        }
+        return new SaveInvoiceResult(true, "Invoice saved, file is being generated");
+    }
+
+
+    public static class SaveInvoiceResult {
+        private final boolean success;
+        private final String message;
+
+        public SaveInvoiceResult(boolean success, String message) {
+            this.success = success;
+            this.message = message;
         }
 
-        // Generate invoice file after successful save
-        String invoicePath = PDFGenerator.generateInvoiceFile(invoice);
-        if (invoicePath == null) {
-            // Invoice was saved but file generation failed
-            return new SaveInvoiceResult(true, null, "Invoice saved but file generation failed");
+        public boolean isSuccess() {
+            return success;
         }
 
-        return new SaveInvoiceResult(true, invoicePath, "Invoice saved and file generated successfully");
+        public String getMessage() {
+            return message;
+        }
     }
 
 
-    public static class SaveInvoiceResult {
+
+    public static class CheckoutResult {
         private final boolean success;
-        private final String pdfPath;
+        private final int invoiceId;
+        private final List<StockShortfall> shortfalls;
         private final String message;
 
-        public SaveInvoiceResult(boolean success, String pdfPath, String message) {
+        private CheckoutResult(boolean success, int invoiceId, List<StockShortfall> shortfalls, String message) {
             this.success = success;
-            this.pdfPath = pdfPath;
+            this.invoiceId = invoiceId;
+            this.shortfalls = shortfalls;
             this.message = message;
         }
 
+        static CheckoutResult completed(int invoiceId) {
+            return new CheckoutResult(true, invoiceId, Collections.emptyList(), "Invoice saved");
+        }
+
+        static CheckoutResult rejected(List<StockShortfall> shortfalls, String message) {
+            return new CheckoutResult(false, 0, shortfalls, message);
+        }
+
+        static CheckoutResult failed(String message) {
+            return new CheckoutResult(false, 0, Collections.emptyList(), message);
+        }
+
         public boolean isSuccess() {
             return success;
         }
 
-        public String getPdfPath() {
-            return pdfPath;
+        public int getInvoiceId() {
+            return invoiceId;
         }
 
-        public String getMessage() {
-            return message;
+        public List<StockShortfall> getShortfalls() {
+            return shortfalls;
         }
 
-        public boolean hasPdf() {
-            return pdfPath != null && !pdfPath.isEmpty();
+        public String getMessage() {
+            return message;
         }
     }
 
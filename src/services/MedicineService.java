@@ -1,34 +1,86 @@
 package services;
 
+import dao.DBConnection;
 import dao.MedicineDAO;
+import dao.MedicineQuery;
 import models.Medicine;
 import models.Pharmacy;
 import models.SaleItem;
+import models.StockShortfall;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
 import java.util.List;
 
 public class MedicineService {
     private final MedicineDAO medicineDAO =  new MedicineDAO();
+    private final InventoryCache inventoryCache = InventoryCache.getShared();
 
     public boolean addMedicine(Medicine medicine){
-        return this.medicineDAO.addMedicine(medicine);
+        if (!this.medicineDAO.addMedicine(medicine)) {
+            return false;
+        }
+        refreshCachedMedicine(medicine.getId());
+        return true;
     }
 
+    //served from the catalog cache, only the first call per pharmacy goes to the database
     public List<Medicine> getAllMedicines(int pharmacyId){
-        return this.medicineDAO.getMedicinesByPharmacyId(pharmacyId);
+        List<Medicine> cached = inventoryCache.get(pharmacyId);
+        if (cached != null) {
+            return cached;
+        }
+        long loadVersion = inventoryCache.getWriteVersion();
+        List<Medicine> medicines = this.medicineDAO.getMedicinesByPharmacyId(pharmacyId);
+        inventoryCache.put(pharmacyId, medicines, loadVersion);
+        return medicines;
+    }
+
+    //one keyset page of the pharmacy's stock in id order, straight from the database; pass the last id seen as afterId
+    public List<Medicine> getMedicinesAfter(int pharmacyId, int afterId, int limit) throws SQLException {
+        return medicineDAO.getMedicinesAfter(MedicineQuery.forPharmacy(pharmacyId).afterId(afterId).limit(limit));
     }
 
     public boolean deleteMedicine(int medicineId) {
-        return medicineDAO.deleteMedicine(medicineId);
+        if (!medicineDAO.deleteMedicine(medicineId)) {
+            return false;
+        }
+        inventoryCache.remove(medicineId);
+        return true;
     }
 
     public boolean updateMedicine(Medicine medicine) {
-        return medicineDAO.updateMedicine(medicine);
+        if (!medicineDAO.updateMedicine(medicine)) {
+            return false;
+        }
+        refreshCachedMedicine(medicine.getId());
+        return true;
+    }
+
+    // re-reads the row so the cache holds exactly what the database stored (pharmacy id, date format)
+    private void refreshCachedMedicine(int medicineId) {
+        Medicine stored = medicineId > 0 ? medicineDAO.getMedicineById(medicineId) : null;
+        if (stored != null) {
+            inventoryCache.upsert(stored);
+        } else {
+            inventoryCache.invalidateAll();     //can't tell which catalog changed
+        }
+    }
+
+    // Call after committing a sale made on a caller-owned transaction (see reserveStock)
+    public void onSaleCommitted(List<SaleItem> saleItems) {
+        inventoryCache.applySale(saleItems);
     }
 
     public List<Medicine> searchMedicineByName(String keyword) {    //returns list of medicines with similar names
         return medicineDAO.searchMedicineByName(keyword);
     }
 
+    public List<Medicine> searchMedicineByName(String keyword, int pharmacyId) {    //same, within one pharmacy's stock
+        return medicineDAO.searchMedicineByName(keyword, pharmacyId);
+    }
+
     public Medicine getMedicineById(int medicineId) {
         return medicineDAO.getMedicineById(medicineId);
     }
@@ -37,24 +89,83 @@ public class MedicineService {
         return medicineDAO.findPharmaciesWithMedicine(keyword);
     }
 
-    public boolean sellMedicines(List<SaleItem> saleItems) {
-        try {
-            for (SaleItem item : saleItems) {
-                Medicine medicine = getMedicineById(item.getMedicine().getId());
-                int newQuantity = medicine.getQuantity() - item.getQuantity();
-                medicine.setQuantity(newQuantity);
-                
-                // Update medicine quantity in database
-                if (!medicineDAO.updateMedicine(medicine)) {
-                    System.err.println("Failed to update medicine in database: " + medicine.getName());
-                    return false;
+    //takes every sold line out of stock in one transaction, either all lines apply or none do
+    public SaleResult sellMedicines(List<SaleItem> saleItems) {
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) {
+                return SaleResult.failed("No database connection");
+            }
+            conn.setAutoCommit(false);
+            try {
+                SaleResult result = reserveStock(conn, saleItems);
+                if (result.isSuccess()) {
+                    conn.commit();
+                    onSaleCommitted(saleItems);
+                } else {
+                    conn.rollback();
                 }
+                return result;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
-
-            return true;
-        } catch (Exception e) {
+        } catch (SQLException e) {
             System.err.println("Couldn't process sale: " + e.getMessage());
-            return false;
+            return SaleResult.failed("Couldn't process sale: " + e.getMessage());
+        }
+    }
+
+    // Stock decrement inside a transaction the caller already opened (e.g. together with the invoice insert).
+    // The caller calls onSaleCommitted() once that transaction commits.
+    public SaleResult reserveStock(Connection conn, List<SaleItem> saleItems) throws SQLException {
+        List<StockShortfall> shortfalls = medicineDAO.decrementStock(conn, saleItems);
+        return shortfalls.isEmpty() ? SaleResult.succeeded() : SaleResult.shortOf(shortfalls);
+    }
+
+
+    public static class SaleResult {
+        private final boolean success;
+        private final List<StockShortfall> shortfalls;
+        private final String message;
+
+        private SaleResult(boolean success, List<StockShortfall> shortfalls, String message) {
+            this.success = success;
+            this.shortfalls = shortfalls;
+            this.message = message;
+        }
+
+        static SaleResult succeeded() {
+            return new SaleResult(true, Collections.emptyList(), "Stock updated");
+        }
+
+        static SaleResult shortOf(List<StockShortfall> shortfalls) {
+            StringBuilder message = new StringBuilder("Insufficient stock:");
+            for (StockShortfall shortfall : shortfalls) {
+                message.append("\n").append(shortfall);
+            }
+            return new SaleResult(false, Collections.unmodifiableList(shortfalls), message.toString());
+        }
+
+        static SaleResult failed(String message) {
+            return new SaleResult(false, Collections.emptyList(), message);
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public List<StockShortfall> getShortfalls() {
+            return shortfalls;
+        }
+
+        public boolean hasShortfalls() {
+            return !shortfalls.isEmpty();
+        }
+
+        public String getMessage() {
+            return message;
         }
     }
 
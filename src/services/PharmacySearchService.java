@@ -3,105 +3,103 @@ package services;
 import dao.MedicineDAO;
 import models.Medicine;
 import models.Pharmacy;
+import models.PharmacyMatch;
 
+import java.text.CollationKey;
+import java.text.Collator;
 import java.util.*;
 
 public class PharmacySearchService {
     private MedicineDAO medicineDAO = new MedicineDAO();
 
+    // Most medicines first, then pharmacy name (case-insensitive), then id so the order is stable
+    static final Comparator<PharmacyAvailability> RANKING = Comparator
+            .comparingInt(PharmacyAvailability::getAvailableCount).reversed()
+            .thenComparing(availability -> availability.sortKey)
+            .thenComparingInt(availability -> availability.getPharmacy().getId());
+
     public PharmacySearchResult findPharmaciesForMedicines(List<String> requestedMedicines) {
+        return findPharmaciesForMedicines(requestedMedicines, 0);
+    }
+
+    // topK > 0 keeps only the best topK pharmacies, 0 ranks every match
+    public PharmacySearchResult findPharmaciesForMedicines(List<String> requestedMedicines, int topK) {
         if (requestedMedicines == null || requestedMedicines.isEmpty()) {
             return new PharmacySearchResult();
         }
 
-        Map<Pharmacy, Map<String, Object>> pharmacyData = medicineDAO.findPharmaciesWithMedicines(requestedMedicines);
-        return organizePharmacyResults(pharmacyData, requestedMedicines);
+        List<PharmacyMatch> matches = medicineDAO.findPharmaciesWithMedicines(requestedMedicines);
+        return organizePharmacyResults(matches, requestedMedicines, topK);
     }
     
-    private PharmacySearchResult organizePharmacyResults(Map<Pharmacy, Map<String, Object>> pharmacyData, List<String> requestedMedicines) {
+    private PharmacySearchResult organizePharmacyResults(List<PharmacyMatch> matches,
+                                                         List<String> requestedMedicines, int topK) {
         PharmacySearchResult result = new PharmacySearchResult();
         
-        if (pharmacyData.isEmpty()) {
+        if (matches.isEmpty()) {
             return result;
         }
         
         int totalMedicinesRequested = requestedMedicines.size();
-        List<PharmacyAvailability> allPharmacies = new ArrayList<>();
+        List<PharmacyAvailability> allPharmacies = new ArrayList<>(matches.size());
         
         // Step 1: Create availability info for each pharmacy
-        createPharmacyAvailabilityList(pharmacyData, totalMedicinesRequested, allPharmacies);
+        createPharmacyAvailabilityList(matches, totalMedicinesRequested, allPharmacies);
         
-        // Step 2: Sort pharmacies by how many medicines they have
-        sortPharmaciesByAvailability(allPharmacies);
+        // Step 2: Rank pharmacies by how many medicines they have, keeping only the top ones if asked
+        List<PharmacyAvailability> rankedPharmacies = rankPharmacies(allPharmacies, topK);
         
         // Step 3: Put pharmacies into complete and partial lists
-        categorizePharmacies(allPharmacies, result);
+        categorizePharmacies(rankedPharmacies, result);
+        result.totalMatches = allPharmacies.size();
         
         return result;
     }
 
 
-        //for each pharmacy find how many of the medicines they have from all the patient searched
+        //for each pharmacy find which of the medicines the patient searched they have (one bit per requested medicine)
         //make pharmacyAvailability object of each pharmacy to store that information
-    private void createPharmacyAvailabilityList(Map<Pharmacy, Map<String, Object>> pharmacyData, 
+    private void createPharmacyAvailabilityList(List<PharmacyMatch> matches, 
                                                int totalMedicinesRequested, 
                                                List<PharmacyAvailability> allPharmacies) {
         
-        for (Pharmacy pharmacy : pharmacyData.keySet()) {
-            
-            Map<String, Object> pharmacyInfo = pharmacyData.get(pharmacy);
-            
-            // Get the medicines this pharmacy has
-            @SuppressWarnings("unchecked")
-            List<Medicine> medicinesTheyHave = (List<Medicine>) pharmacyInfo.get("availableMedicines");
-            
-            // Count how many medicines they have
-            int howManyTheyHave = medicinesTheyHave.size();
-            
-            // Create a simple info object
-            PharmacyAvailability pharmacyInfo_obj = new PharmacyAvailability(
-                    pharmacy, 
-                    medicinesTheyHave, 
-                    howManyTheyHave, 
+        for (PharmacyMatch match : matches) {
+            // Create a simple info object from the medicines this pharmacy has
+            PharmacyAvailability availability = new PharmacyAvailability(
+                    match.getPharmacy(), 
+                    match.getAvailableMedicines(), 
+                    match.getCoveredTerms(), 
                     totalMedicinesRequested);
             
             // Add this pharmacy to our list
-            allPharmacies.add(pharmacyInfo_obj);
+            allPharmacies.add(availability);
         }
     }
 
 
 
-        // Sort pharmacies according to how many medicines available from the medicines that patient searched
-    private void sortPharmaciesByAvailability(List<PharmacyAvailability> allPharmacies) {
-        for (int i = 0; i < allPharmacies.size() - 1; i++) {
-            for (int j = i + 1; j < allPharmacies.size(); j++) {
-                PharmacyAvailability pharmacy1 = allPharmacies.get(i);
-                PharmacyAvailability pharmacy2 = allPharmacies.get(j);
-                
-                // If pharmacy2 has more medicines, swap them
-                if (shouldSwapPharmacies(pharmacy1, pharmacy2)) {
-                    allPharmacies.set(i, pharmacy2);
-                    allPharmacies.set(j, pharmacy1);
-                }
-            }
+        // Sort pharmacies according to how many medicines available from the medicines that patient searched.
+        // With a topK only a heap of the best topK is kept (O(n log k)), otherwise everything is sorted.
+    static List<PharmacyAvailability> rankPharmacies(List<PharmacyAvailability> allPharmacies, int topK) {
+        if (topK <= 0 || topK >= allPharmacies.size()) {
+            allPharmacies.sort(RANKING);
+            return allPharmacies;
         }
-    }
 
-    private boolean shouldSwapPharmacies(PharmacyAvailability pharmacy1, PharmacyAvailability pharmacy2) {
-        // First check: which has more medicines?
-        if (pharmacy2.getAvailableCount() > pharmacy1.getAvailableCount()) {
-            return true;
-        }
-        
-        // Second check: if same count, sort by name alphabetically
-        if (pharmacy2.getAvailableCount() == pharmacy1.getAvailableCount()) {
-            String name1 = pharmacy1.getPharmacy().getName().toLowerCase();
-            String name2 = pharmacy2.getPharmacy().getName().toLowerCase();
-            return name2.compareTo(name1) < 0;
+        // reversed order puts the worst pharmacy we are keeping at the head, ready to be replaced
+        PriorityQueue<PharmacyAvailability> best = new PriorityQueue<>(topK + 1, RANKING.reversed());
+        for (PharmacyAvailability availability : allPharmacies) {
+            if (best.size() < topK) {
+                best.add(availability);
+            } else if (RANKING.compare(availability, best.peek()) < 0) {
+                best.poll();
+                best.add(availability);
+            }
         }
 
-        return false;
+        List<PharmacyAvailability> top = new ArrayList<>(best);
+        top.sort(RANKING);
+        return top;
     }
     
     private void categorizePharmacies(List<PharmacyAvailability> allPharmacies, PharmacySearchResult result) {
@@ -119,6 +117,7 @@ public class PharmacySearchService {
         private List<PharmacyAvailability> completePharmacies = new ArrayList<>();
         private List<PharmacyAvailability> partialPharmacies = new ArrayList<>();
         private List<PharmacyAvailability> rankedPharmacies = new ArrayList<>();
+        private int totalMatches;
         
         public List<PharmacyAvailability> getCompletePharmacies() {
             return completePharmacies;
@@ -131,6 +130,22 @@ public class PharmacySearchService {
         public List<PharmacyAvailability> getRankedPharmacies() {
             return rankedPharmacies;
         }
+
+        // One page of the ranking as a view, so the UI only builds panels for what it shows
+        public List<PharmacyAvailability> getRankedPharmacies(int offset, int limit) {
+            int from = Math.min(Math.max(offset, 0), rankedPharmacies.size());
+            int to = Math.min(from + Math.max(limit, 0), rankedPharmacies.size());
+            return Collections.unmodifiableList(rankedPharmacies.subList(from, to));
+        }
+
+        public int getRankedCount() {
+            return rankedPharmacies.size();
+        }
+
+        // Every pharmacy that matched, including the ones cut off by a topK limit
+        public int getTotalMatches() {
+            return totalMatches;
+        }
         
         public void addCompletePharmacy(PharmacyAvailability availability) {
             completePharmacies.add(availability);
@@ -151,18 +166,30 @@ public class PharmacySearchService {
         }
     }
     
+    // Collators aren't thread-safe; SECONDARY strength ignores case like the old toLowerCase() comparison
+    private static final ThreadLocal<Collator> NAME_COLLATOR = ThreadLocal.withInitial(() -> {
+        Collator collator = Collator.getInstance();
+        collator.setStrength(Collator.SECONDARY);
+        return collator;
+    });
+
     public static class PharmacyAvailability {
         private Pharmacy pharmacy;
         private List<Medicine> availableMedicines;
-        private int availableCount;
+        private final BitSet coveredTerms;      // bit i = requestedMedicines.get(i) is in stock here
+        private int availableCount;             // popcount of coveredTerms, kept for the comparator
         private int totalRequested;
+        private final CollationKey sortKey;     // built once here instead of lower-casing on every comparison
         
         public PharmacyAvailability(Pharmacy pharmacy, List<Medicine> availableMedicines, 
-                                  int availableCount, int totalRequested) {
+                                  BitSet coveredTerms, int totalRequested) {
             this.pharmacy = pharmacy;
             this.availableMedicines = availableMedicines;
-            this.availableCount = availableCount;
+            this.coveredTerms = coveredTerms;
+            this.availableCount = coveredTerms.cardinality();
             this.totalRequested = totalRequested;
+            String name = pharmacy.getName() != null ? pharmacy.getName() : "";
+            this.sortKey = NAME_COLLATOR.get().getCollationKey(name);
         }
         
         public Pharmacy getPharmacy() {
@@ -180,9 +207,23 @@ public class PharmacySearchService {
         public int getTotalRequested() {
             return totalRequested;
         }
+
+        // Whether requested medicine termIndex (its position in the search list) is in stock here
+        public boolean hasMedicine(int termIndex) {
+            return coveredTerms.get(termIndex);
+        }
+
+        // Positions in the search list this pharmacy can't supply
+        public BitSet getMissingMedicines() {
+            BitSet missing = new BitSet(totalRequested);
+            missing.set(0, totalRequested);
+            missing.andNot(coveredTerms);
+            return missing;
+        }
         
+        // Complete only when every requested medicine has its bit set, several brands of one drug don't count twice
         public boolean hasAllMedicines() {
-            return availableCount >= totalRequested;
+            return coveredTerms.nextClearBit(0) >= totalRequested;
         }
         
         public double getAvailabilityPercentage() {
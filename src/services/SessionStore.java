@@ -0,0 +1,243 @@
+package services;
+
+import dao.SessionDAO;
+import models.Session;
+import models.User;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SessionStore - Logged-in users by opaque token, for any number of simultaneous sessions.
+ * A token is 256 random bits handed to the client once; the store only keeps its SHA-256, so neither
+ * memory dumps nor the sessions table hold a usable token. Sessions expire after ttl of inactivity
+ * (sliding: every lookup extends it) and are dropped lazily on lookup and by a periodic sweep.
+ *
+ * Lookups never lock: sessions live in a ConcurrentHashMap and the last-seen time is a volatile
+ * field, written at most once a second per session so busy sessions don't fight over it.
+ *
+ * With persistence on, sessions are also kept in the sessions table and reloaded by getShared(), so a
+ * restart doesn't log everyone out. Last-seen times are written behind, in one batch per sweep.
+ *
+ * Tuned with -Dpharmapoint.session.ttlMinutes (default 30), .sweepSeconds (default 60), .persist (default false)
+ */
+public class SessionStore {
+
+    private static final int TOKEN_BYTES = 32;
+    private static final long TOUCH_GRANULARITY_MS = 1000;
+
+    // every lookup hashes its token, getInstance() per call would cost more than the hash
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    });
+
+    private static volatile SessionStore shared;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();    // token hash -> session
+    private final Set<Session> touched = ConcurrentHashMap.newKeySet();           // last seen changed since the last sync
+    private final long ttlMillis;
+    private final SessionDAO sessionDAO;        // null when not persistent
+    private final ScheduledExecutorService sweeper;
+
+    // Metrics
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong revoked = new AtomicLong();
+
+    public SessionStore(long ttlMillis, long sweepSeconds, boolean persistent) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttlMillis must be positive");
+        }
+        this.ttlMillis = ttlMillis;
+        this.sessionDAO = persistent ? new SessionDAO() : null;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pharmapoint-session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (persistent) {
+            for (Session session : sessionDAO.getActiveSessions(System.currentTimeMillis())) {
+                sessions.put(session.getTokenHash(), session);
+            }
+            if (!sessions.isEmpty()) {
+                System.out.println("Restored " + sessions.size() + " login session(s)");
+            }
+        }
+        if (sweepSeconds > 0) {
+            sweeper.scheduleWithFixedDelay(this::sweep, sweepSeconds, sweepSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public static SessionStore getShared() {
+        SessionStore current = shared;
+        if (current == null) {
+            synchronized (SessionStore.class) {
+                current = shared;
+                if (current == null) {
+                    current = new SessionStore(
+                            TimeUnit.MINUTES.toMillis(Long.getLong("pharmapoint.session.ttlMinutes", 30L)),
+                            Long.getLong("pharmapoint.session.sweepSeconds", 60L),
+                            Boolean.getBoolean("pharmapoint.session.persist"));
+                    shared = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public static synchronized void shutdownShared() {
+        if (shared != null) {
+            shared.close();
+            shared = null;
+        }
+    }
+
+    // New session with the store's ttl; the returned session is the only place its token can be read
+    public Session issue(User user) {
+        return issue(user, ttlMillis);
+    }
+
+    public Session issue(User user, long sessionTtlMillis) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        long now = System.currentTimeMillis();
+        Session session = new Session(token, hash(token), user, now, now, sessionTtlMillis);
+        sessions.put(session.getTokenHash(), session);
+        if (sessionDAO != null) {
+            sessionDAO.insertSession(session);
+        }
+        issued.incrementAndGet();
+        return session;
+    }
+
+    // The live session for the token, extending its ttl, or null if unknown or expired
+    public Session get(String token) {
+        if (token == null) {
+            return null;
+        }
+        String tokenHash = hash(token);
+        Session session = sessions.get(tokenHash);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (session.isExpired(now)) {
+            if (sessions.remove(tokenHash, session)) {
+                expired.incrementAndGet();
+            }
+            return null;
+        }
+        if (now - session.getLastSeenAt() >= TOUCH_GRANULARITY_MS) {
+            session.setLastSeenAt(now);
+            if (sessionDAO != null) {
+                touched.add(session);
+            }
+        }
+        return session;
+    }
+
+    public User getUser(String token) {
+        Session session = get(token);
+        return session != null ? session.getUser() : null;
+    }
+
+    // Logout; returns false if there was no such session
+    public boolean revoke(String token) {
+        if (token == null) {
+            return false;
+        }
+        return remove(hash(token));
+    }
+
+    // Ends every session of the user, e.g. after a password change; returns how many there were
+    public int revokeAll(int userId) {
+        int count = 0;
+        for (Session session : sessions.values()) {
+            if (session.getUser().getId() == userId && remove(session.getTokenHash())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean remove(String tokenHash) {
+        Session session = sessions.remove(tokenHash);
+        if (session == null) {
+            return false;
+        }
+        revoked.incrementAndGet();
+        if (sessionDAO != null) {
+            touched.remove(session);
+            sessionDAO.deleteSession(tokenHash);
+        }
+        return true;
+    }
+
+    // Drops expired sessions and, when persistent, writes the batched last-seen times; runs on the sweeper
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        for (Session session : sessions.values()) {
+            if (session.isExpired(now) && sessions.remove(session.getTokenHash(), session)) {
+                expired.incrementAndGet();
+                touched.remove(session);
+            }
+        }
+        if (sessionDAO != null) {
+            List<Session> batch = new ArrayList<>(touched);
+            touched.removeAll(batch);
+            sessionDAO.syncSessions(batch, now);    // also deletes the expired rows
+        }
+    }
+
+    public void close() {
+        sweeper.shutdownNow();
+        if (sessionDAO != null) {
+            sweep();        // last-seen times of the final minute
+        }
+    }
+
+    public int getActiveCount() {
+        return sessions.size();
+    }
+
+    public long getIssued() {
+        return issued.get();
+    }
+
+    public long getExpired() {
+        return expired.get();
+    }
+
+    public long getRevoked() {
+        return revoked.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SessionStore{active=%d, issued=%d, expired=%d, revoked=%d}",
+                getActiveCount(), getIssued(), getExpired(), getRevoked());
+    }
+
+    private static String hash(String token) {
+        byte[] digest = SHA256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+}
@@ -1,24 +1,30 @@
 package ui;
 
 import dao.MedicineDAO;
+import dao.MedicineSort;
 import models.Medicine;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
-import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.util.List;
 
 /**
- * AdminMedicinesPanel - Panel to display all medicines ranked by quantity
+ * AdminMedicinesPanel - Panel to display all medicines ranked by quantity.
+ * Rows are paged in from the database as they scroll into view (PagedMedicineTableModel),
+ * searching and sorting run as SQL queries off the EDT.
  */
 public class AdminMedicinesPanel extends JPanel {
+    private static final int LOW_STOCK_THRESHOLD = 10;
+    private static final int LOW_STOCK_SHOWN = 50;       // the lowest ones; the alert says how many there are in all
+
     private JTable medicinesTable;
-    private DefaultTableModel tableModel;
+    private PagedMedicineTableModel tableModel;
     private MedicineDAO medicineDAO;
     private JTextField searchField;
+    private DebouncedSearchController<PagedMedicineTableModel.View> searchController;
+    private volatile MedicineSort selectedSort = MedicineSort.QUANTITY_DESC;     // read by the search thread
     private JLabel totalMedicinesLabel;
-    private JComboBox<String> sortComboBox;
+    private JComboBox<MedicineSort> sortComboBox;
 
     public AdminMedicinesPanel() {
         this.medicineDAO = new MedicineDAO();
@@ -29,14 +35,8 @@ public class AdminMedicinesPanel extends JPanel {
     }
 
     private void initializeComponents() {
-        // Create table model with columns
-        String[] columnNames = {"Rank", "Medicine Name", "Generic Name", "Brand", "Pharmacy", "Quantity", "Price"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table read-only
-            }
-        };
+        // Create table model with columns, read-only and loaded page by page
+        tableModel = new PagedMedicineTableModel();
 
         // Create table
         medicinesTable = new JTable(tableModel);
@@ -45,23 +45,12 @@ public class AdminMedicinesPanel extends JPanel {
         medicinesTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 14));
         medicinesTable.setFont(new Font("Arial", Font.PLAIN, 13));
 
-        // Enable sorting
-        TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(tableModel);
-        medicinesTable.setRowSorter(sorter);
-
         // Search field
         searchField = new JTextField(20);
         searchField.setFont(new Font("Arial", Font.PLAIN, 14));
         
         // Sort combo box
-        sortComboBox = new JComboBox<>(new String[]{
-            "Quantity (High to Low)", 
-            "Quantity (Low to High)", 
-            "Medicine Name (A-Z)", 
-            "Medicine Name (Z-A)",
-            "Price (High to Low)",
-            "Price (Low to High)"
-        });
+        sortComboBox = new JComboBox<>(MedicineSort.values());     // sorted by the database, the table only shows one page at a time
         sortComboBox.setFont(new Font("Arial", Font.PLAIN, 14));
         
         // Total medicines label
@@ -125,15 +114,11 @@ public class AdminMedicinesPanel extends JPanel {
     }
 
     private void setupEventHandlers() {
-        // Search functionality
-        searchField.addActionListener(e -> filterTable());
-        
-        // Real-time search as user types
-        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
-            public void changedUpdate(javax.swing.event.DocumentEvent e) { filterTable(); }
-            public void removeUpdate(javax.swing.event.DocumentEvent e) { filterTable(); }
-            public void insertUpdate(javax.swing.event.DocumentEvent e) { filterTable(); }
-        });
+        // Real-time search as user types, queried off the EDT once typing pauses
+        searchController = new DebouncedSearchController<>(searchField, 200,
+                (query, cancelled) -> tableModel.prepare(query, selectedSort),
+                this::showView);
+        searchField.addActionListener(e -> searchController.searchNow());
 
         // Sort combo box
         sortComboBox.addActionListener(e -> applySorting());
@@ -167,93 +152,29 @@ public class AdminMedicinesPanel extends JPanel {
         }
     }
 
-    private void filterTable() {
-        String searchText = searchField.getText().trim().toLowerCase();
-        @SuppressWarnings("unchecked")
-        TableRowSorter<DefaultTableModel> sorter = (TableRowSorter<DefaultTableModel>) medicinesTable.getRowSorter();
-        
-        if (searchText.isEmpty()) {
-            sorter.setRowFilter(null);
-        } else {
-            sorter.setRowFilter(RowFilter.regexFilter("(?i)" + searchText));
-        }
-        
+    private void showView(PagedMedicineTableModel.View view) {
+        tableModel.apply(view);
         updateStats();
     }
 
     private void applySorting() {
-        @SuppressWarnings("unchecked")
-        TableRowSorter<DefaultTableModel> sorter = (TableRowSorter<DefaultTableModel>) medicinesTable.getRowSorter();
-        
-        String selectedSort = (String) sortComboBox.getSelectedItem();
-        
-        if (selectedSort != null) {
-            switch (selectedSort) {
-                case "Quantity (High to Low)":
-                    sorter.setSortKeys(List.of(new RowSorter.SortKey(5, SortOrder.DESCENDING)));
-                    break;
-                case "Quantity (Low to High)":
-                    sorter.setSortKeys(List.of(new RowSorter.SortKey(5, SortOrder.ASCENDING)));
-                    break;
-                case "Medicine Name (A-Z)":
-                    sorter.setSortKeys(List.of(new RowSorter.SortKey(1, SortOrder.ASCENDING)));
-                    break;
-                case "Medicine Name (Z-A)":
-                    sorter.setSortKeys(List.of(new RowSorter.SortKey(1, SortOrder.DESCENDING)));
-                    break;
-                case "Price (High to Low)":
-                    sorter.setSortKeys(List.of(new RowSorter.SortKey(6, SortOrder.DESCENDING)));
-                    break;
-                case "Price (Low to High)":
-                    sorter.setSortKeys(List.of(new RowSorter.SortKey(6, SortOrder.ASCENDING)));
-                    break;
-            }
+        MedicineSort sort = (MedicineSort) sortComboBox.getSelectedItem();
+        if (sort != null) {
+            selectedSort = sort;
+            searchController.searchNow();
         }
     }
 
+    // Reloads count and first page in the background, keeping the current search and sort
     public void refreshData() {
-        SwingUtilities.invokeLater(() -> {
-            try {
-                // Clear existing data
-                tableModel.setRowCount(0);
-                
-                // Get all medicines from database - need to implement this method
-                List<Medicine> medicines = medicineDAO.getAllMedicinesWithPharmacyInfo();
-                
-                // Add medicines to table with ranking
-                for (int i = 0; i < medicines.size(); i++) {
-                    Medicine medicine = medicines.get(i);
-                    Object[] rowData = {
-                        i + 1, // Rank
-                        medicine.getName(),
-                        medicine.getGenericName(),
-                        medicine.getBrand(),
-                        "Pharmacy " + medicine.getPharmacyId(), // Placeholder - could be improved
-                        medicine.getQuantity(),
-                        String.format("৳%.2f", medicine.getPrice())
-                    };
-                    tableModel.addRow(rowData);
-                }
-                
-                // Apply default sorting (by quantity, high to low)
-                applySorting();
-                updateStats();
-                
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this, 
-                    "Error loading medicines: " + e.getMessage(), 
-                    "Database Error", 
-                    JOptionPane.ERROR_MESSAGE);
-            }
-        });
+        searchController.searchNow();
     }
 
     private void updateStats() {
-        int totalMedicines = medicinesTable.getRowCount();
-        int visibleMedicines = medicinesTable.getRowSorter() != null ? 
-            medicinesTable.getRowSorter().getViewRowCount() : totalMedicines;
+        int totalMedicines = tableModel.getTotalCount();
+        int visibleMedicines = tableModel.getRowCount();
         
-        if (visibleMedicines == totalMedicines) {
+        if (!tableModel.isFiltered()) {
             totalMedicinesLabel.setText("Total Medicines: " + totalMedicines);
         } else {
             totalMedicinesLabel.setText("Showing: " + visibleMedicines + " of " + totalMedicines + " medicines");
@@ -271,10 +192,9 @@ public class AdminMedicinesPanel extends JPanel {
         }
 
         // Get medicine data from selected row
-        int modelRow = medicinesTable.convertRowIndexToModel(selectedRow);
         Object[] rowData = new Object[tableModel.getColumnCount()];
         for (int i = 0; i < tableModel.getColumnCount(); i++) {
-            rowData[i] = tableModel.getValueAt(modelRow, i);
+            rowData[i] = tableModel.getValueAt(selectedRow, i);
         }
 
         // Show details dialog
@@ -326,32 +246,53 @@ public class AdminMedicinesPanel extends JPanel {
     }
 
     private void showLowStockAlert() {
-        StringBuilder lowStockMessage = new StringBuilder("Low Stock Medicines (Quantity < 10):\n\n");
-        boolean hasLowStock = false;
-        
-        for (int i = 0; i < tableModel.getRowCount(); i++) {
-            Object quantityObj = tableModel.getValueAt(i, 5);
-            if (quantityObj instanceof Integer) {
-                int quantity = (Integer) quantityObj;
-                if (quantity < 10) {
-                    hasLowStock = true;
-                    String medicineName = (String) tableModel.getValueAt(i, 1);
-                    String pharmacy = (String) tableModel.getValueAt(i, 4);
-                    lowStockMessage.append("• ").append(medicineName)
-                                  .append(" (").append(pharmacy).append("): ")
-                                  .append(quantity).append(" units\n");
+        // Asked from the database off the EDT; there can be hundreds of thousands, only the lowest are listed
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<List<MedicineDAO.LowStockLine>, Void>() {
+            private int total;
+
+            @Override
+            protected List<MedicineDAO.LowStockLine> doInBackground() {
+                total = medicineDAO.countLowStockMedicines(LOW_STOCK_THRESHOLD);
+                return medicineDAO.getLowStockMedicines(LOW_STOCK_THRESHOLD, LOW_STOCK_SHOWN);
+            }
+
+            @Override
+            protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                List<MedicineDAO.LowStockLine> lowStock;
+                try {
+                    lowStock = get();
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(AdminMedicinesPanel.this,
+                        "Couldn't load low stock medicines: " + ex.getMessage(), "Low Stock Alert", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
+                showLowStockAlert(lowStock, total);
             }
+        }.execute();
+    }
+
+    private void showLowStockAlert(List<MedicineDAO.LowStockLine> lowStock, int total) {
+        if (lowStock.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                "Good news! No medicines are currently low in stock.",
+                "Low Stock Alert",
+                JOptionPane.INFORMATION_MESSAGE);
+            return;
         }
-        
-        if (!hasLowStock) {
-            lowStockMessage = new StringBuilder("Good news! No medicines are currently low in stock.");
+
+        StringBuilder lowStockMessage = new StringBuilder("Low Stock Medicines (Quantity < " + LOW_STOCK_THRESHOLD + "), showing ")
+            .append(lowStock.size()).append(" of ").append(total).append(":\n\n");
+        for (MedicineDAO.LowStockLine line : lowStock) {
+            lowStockMessage.append("• ").append(line.getMedicine().getName())
+                          .append(" (").append(line.getPharmacyName()).append("): ")
+                          .append(line.getMedicine().getQuantity()).append(" units\n");
         }
-        
-        JOptionPane.showMessageDialog(this, 
-            lowStockMessage.toString(), 
-            "Low Stock Alert", 
-            hasLowStock ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+
+        JTextArea text = new JTextArea(lowStockMessage.toString(), 20, 60);
+        text.setEditable(false);
+        JOptionPane.showMessageDialog(this, new JScrollPane(text), "Low Stock Alert", JOptionPane.WARNING_MESSAGE);
     }
 
     private void exportMedicineData() {
@@ -17,6 +17,8 @@ public class AdminPharmaciesPanel extends JPanel {
     private DefaultTableModel tableModel;
     private PharmacyDAO pharmacyDAO;
     private JTextField searchField;
+    private DebouncedSearchController<TableSearchIndex.Match> searchController;
+    private volatile TableSearchIndex searchIndex = TableSearchIndex.empty();
     private JLabel totalPharmaciesLabel;
 
     public AdminPharmaciesPanel() {
@@ -108,15 +110,11 @@ public class AdminPharmaciesPanel extends JPanel {
     }
 
     private void setupEventHandlers() {
-        // Search functionality
-        searchField.addActionListener(e -> filterTable());
-        
-        // Real-time search as user types
-        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
-            public void changedUpdate(javax.swing.event.DocumentEvent e) { filterTable(); }
-            public void removeUpdate(javax.swing.event.DocumentEvent e) { filterTable(); }
-            public void insertUpdate(javax.swing.event.DocumentEvent e) { filterTable(); }
-        });
+        // Real-time search as user types, filtered off the EDT once typing pauses
+        searchController = new DebouncedSearchController<>(searchField, 200,
+                (query, cancelled) -> searchIndex.match(query, cancelled),
+                this::applyFilter);
+        searchField.addActionListener(e -> searchController.searchNow());
 
         // Refresh button
         Component[] components = ((JPanel) getComponent(0)).getComponents();
@@ -147,16 +145,20 @@ public class AdminPharmaciesPanel extends JPanel {
         }
     }
 
-    private void filterTable() {
-        String searchText = searchField.getText().trim().toLowerCase();
+    // Row numbers changed, so the current filter is dropped and recomputed against the new rows
+    private void reindexSearch() {
+        searchIndex = TableSearchIndex.snapshot(tableModel);
+        ((TableRowSorter<?>) pharmaciesTable.getRowSorter()).setRowFilter(null);
+        searchController.searchNow();
+    }
+
+    private void applyFilter(TableSearchIndex.Match match) {
+        if (match == null || !match.appliesTo(searchIndex)) {
+            return;     // cancelled, or the table was reloaded while filtering
+        }
         @SuppressWarnings("unchecked")
         TableRowSorter<DefaultTableModel> sorter = (TableRowSorter<DefaultTableModel>) pharmaciesTable.getRowSorter();
-        
-        if (searchText.isEmpty()) {
-            sorter.setRowFilter(null);
-        } else {
-            sorter.setRowFilter(RowFilter.regexFilter("(?i)" + searchText));
-        }
+        sorter.setRowFilter(match.toRowFilter());
         
         updateStats();
     }
@@ -182,6 +184,7 @@ public class AdminPharmaciesPanel extends JPanel {
                     tableModel.addRow(rowData);
                 }
                 
+                reindexSearch();
                 updateStats();
                 
             } catch (Exception e) {
@@ -0,0 +1,91 @@
+package ui;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.JTextComponent;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * DebouncedSearchController - Live search for a text field without blocking the EDT.
+ * Typing restarts a short Swing timer; only when the user pauses does the search run, on a
+ * background thread. Every new search bumps a generation number, so older searches that are
+ * still running stop early (via the cancelled check) and their results are thrown away instead
+ * of overwriting newer ones. Results are handed to the onResult callback on the EDT.
+ *
+ *   new DebouncedSearchController<>(searchField, 200,
+ *           (query, cancelled) -> ...background work...,
+ *           result -> ...update the table...);
+ */
+public class DebouncedSearchController<R> {
+
+    // One thread for every search box: searches are short and a stale one is dropped before it starts
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pharmapoint-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public interface Search<R> {
+        // Runs off the EDT; long loops should return early once cancelled.getAsBoolean() is true
+        R run(String query, BooleanSupplier cancelled) throws Exception;
+    }
+
+    private final JTextComponent field;
+    private final Search<R> search;
+    private final Consumer<R> onResult;
+    private final Timer debounceTimer;
+    private final AtomicLong generation = new AtomicLong();
+    private final DocumentListener documentListener;
+
+    public DebouncedSearchController(JTextComponent field, int delayMs, Search<R> search, Consumer<R> onResult) {
+        this.field = field;
+        this.search = search;
+        this.onResult = onResult;
+
+        this.debounceTimer = new Timer(delayMs, e -> searchNow());
+        this.debounceTimer.setRepeats(false);
+
+        this.documentListener = new DocumentListener() {
+            public void changedUpdate(DocumentEvent e) { debounceTimer.restart(); }
+            public void removeUpdate(DocumentEvent e) { debounceTimer.restart(); }
+            public void insertUpdate(DocumentEvent e) { debounceTimer.restart(); }
+        };
+        field.getDocument().addDocumentListener(documentListener);
+    }
+
+    // Skips the delay, e.g. for Enter, a Search button or after the table data was reloaded
+    public void searchNow() {
+        debounceTimer.stop();
+        long current = generation.incrementAndGet();
+        String query = field.getText();
+        BooleanSupplier cancelled = () -> generation.get() != current;
+
+        SEARCH_EXECUTOR.execute(() -> {
+            if (cancelled.getAsBoolean()) {
+                return;     // the user kept typing, a newer search is queued
+            }
+            try {
+                R result = search.run(query, cancelled);
+                SwingUtilities.invokeLater(() -> {
+                    if (!cancelled.getAsBoolean()) {
+                        onResult.accept(result);
+                    }
+                });
+            } catch (Exception e) {
+                System.err.println("Search failed for '" + query + "': " + e.getMessage());
+            }
+        });
+    }
+
+    // Drops any pending or running search, e.g. when the window closes
+    public void dispose() {
+        debounceTimer.stop();
+        generation.incrementAndGet();
+        field.getDocument().removeDocumentListener(documentListener);
+    }
+}
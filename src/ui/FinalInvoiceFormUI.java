@@ -3,6 +3,7 @@ package ui;
 import models.Invoice;
 import models.Pharmacy;
 import models.SaleItem;
+import services.InvoiceRenderQueue;
 import services.InvoiceService;
 
 import javax.swing.*;
@@ -304,7 +305,7 @@ public class FinalInvoiceFormUI extends JDialog {
                     InvoiceService.SaveInvoiceResult result = get();
                     
                     if (result.isSuccess()) {
-                        handleSaleSuccess(invoice, result);
+                        handleSaleSuccess(invoice);
                     } else {
                         handleSaleFailure(result.getMessage());
                     }
@@ -318,21 +319,16 @@ public class FinalInvoiceFormUI extends JDialog {
         worker.execute();
     }
     
-    private void handleSaleSuccess(Invoice invoice, InvoiceService.SaveInvoiceResult result) {
-        // Show success message with invoice ID and PDF info
+    private void handleSaleSuccess(Invoice invoice) {
+        // Show success message with invoice ID; the file is rendered in the background
         String successMessage = String.format(
-            "Sale processed successfully!\n\nInvoice ID: %d\nPatient: %s\nTotal: %.2f BDT",
+            "Sale processed successfully!\n\nInvoice ID: %d\nPatient: %s\nTotal: %.2f BDT"
+                + "\n\nThe invoice file is being generated in the background.",
             invoice.getId(),
             invoice.getPatientName(),
             invoice.getTotalAmount()
         );
         
-        if (result.hasPdf()) {
-            successMessage += "\n\n✓ Invoice file generated successfully!";
-        } else {
-            successMessage += "\n\n⚠ Invoice file generation failed, but sale was completed.";
-        }
-        
         JOptionPane.showMessageDialog(this,
             successMessage,
             "Sale Successful",
@@ -341,10 +337,8 @@ public class FinalInvoiceFormUI extends JDialog {
         // Show full invoice
         showFullInvoice(invoice);
         
-        // Offer to open invoice file if generated
-        if (result.hasPdf()) {
-            offerToOpenInvoiceFile(result.getPdfPath());
-        }
+        // Offer to open invoice file once it's generated; this window closes below, so ask on the sell screen
+        followInvoiceFile(invoice.getId());
         
         // Close this window and refresh parent
         dispose();
@@ -353,6 +347,22 @@ public class FinalInvoiceFormUI extends JDialog {
         }
     }
     
+    // The render queue calls back on its own thread, hop to the EDT before showing anything
+    private void followInvoiceFile(int invoiceId) {
+        SellMedicineUI owner = parentWindow;
+        InvoiceRenderQueue.getShared().subscribe(invoiceId, job -> {
+            if (job.getStatus() == InvoiceRenderQueue.Status.DONE) {
+                SwingUtilities.invokeLater(() -> offerToOpenInvoiceFile(owner, job.getFilePath()));
+            } else if (job.getStatus() == InvoiceRenderQueue.Status.FAILED) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(owner,
+                    "The file for invoice " + invoiceId + " couldn't be generated:\n" + job.getLastError() +
+                    "\n\nThe sale itself was completed.",
+                    "Invoice File",
+                    JOptionPane.WARNING_MESSAGE));
+            }
+        });
+    }
+    
     private void handleSaleFailure(String errorMessage) {
         JOptionPane.showMessageDialog(this,
             "Failed to process sale:\n" + errorMessage + 
@@ -406,8 +416,8 @@ public class FinalInvoiceFormUI extends JDialog {
         invoiceDialog.setVisible(true);
     }
     
-    private void offerToOpenInvoiceFile(String invoicePath) {
-        int choice = JOptionPane.showConfirmDialog(this,
+    private static void offerToOpenInvoiceFile(Component owner, String invoicePath) {
+        int choice = JOptionPane.showConfirmDialog(owner,
             "Invoice file has been saved to:\n" + invoicePath + 
             "\n\nWould you like to open it now?",
             "Invoice Generated",
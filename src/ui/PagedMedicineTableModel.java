@@ -0,0 +1,175 @@
+package ui;
+
+import dao.MedicineDAO;
+import dao.MedicineSort;
+import models.Medicine;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * PagedMedicineTableModel - Read-only table over every medicine, loaded a page at a time.
+ * Only the row count is known up front; a page is fetched in the background the first time
+ * one of its rows is painted and kept in a small LRU cache. Sorting and searching happen in
+ * SQL, so the table never holds more than MAX_CACHED_PAGES pages no matter how big the
+ * catalog is. Rows that aren't loaded yet show as empty until their page arrives.
+ *
+ * A new search or sort is prepared off the EDT with prepare() and switched to with apply().
+ */
+public class PagedMedicineTableModel extends AbstractTableModel {
+
+    static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 20;
+    private static final String[] COLUMNS = {"Rank", "Medicine Name", "Generic Name", "Brand", "Pharmacy", "Quantity", "Price"};
+
+    private static final ExecutorService PAGE_LOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pharmapoint-table-pages");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final MedicineDAO medicineDAO = new MedicineDAO();
+
+    // Everything below is only touched on the EDT
+    private View view = new View(null, MedicineSort.QUANTITY_DESC, 0, 0, List.of());
+    private final LinkedHashMap<Integer, List<Medicine>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Medicine>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Map<Integer, Medicine> lastRowOfPage = new HashMap<>();      // keyset anchors, kept after eviction
+    private final Set<Integer> loadingPages = new HashSet<>();
+
+    // Runs on a background thread: counts and fetches the first page for a search and sort
+    public View prepare(String search, MedicineSort sort) {
+        String query = search == null || search.trim().isEmpty() ? null : search.trim();
+        int totalCount = medicineDAO.countMedicines(null);
+        int rowCount = query == null ? totalCount : medicineDAO.countMedicines(query);
+        List<Medicine> firstPage = medicineDAO.getMedicinesPage(query, sort, null, 0, PAGE_SIZE);
+        return new View(query, sort, rowCount, totalCount, firstPage);
+    }
+
+    // Switches the table to a prepared view; on the EDT
+    public void apply(View prepared) {
+        view = prepared;
+        pages.clear();
+        lastRowOfPage.clear();
+        loadingPages.clear();
+        storePage(0, prepared.firstPage);
+        fireTableDataChanged();
+    }
+
+    public int getTotalCount() {
+        return view.totalCount;
+    }
+
+    public boolean isFiltered() {
+        return view.search != null;
+    }
+
+    // The medicine at a row, or null while its page is still loading
+    public Medicine getMedicineAt(int row) {
+        List<Medicine> page = pages.get(row / PAGE_SIZE);
+        if (page == null) {
+            requestPage(row / PAGE_SIZE);
+            return null;
+        }
+        int index = row % PAGE_SIZE;
+        return index < page.size() ? page.get(index) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return view.rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 0 || column == 5 ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Medicine medicine = getMedicineAt(row);
+        if (medicine == null) {
+            return column == 1 ? "Loading..." : null;
+        }
+        switch (column) {
+            case 0: return row + 1;
+            case 1: return medicine.getName();
+            case 2: return medicine.getGenericName();
+            case 3: return medicine.getBrand();
+            case 4: return "Pharmacy " + medicine.getPharmacyId();
+            case 5: return medicine.getQuantity();
+            default: return String.format("৳%.2f", medicine.getPrice());
+        }
+    }
+
+    private void requestPage(int pageIndex) {
+        if (!loadingPages.add(pageIndex)) {
+            return;     // already on its way
+        }
+        View requestedFor = view;
+        Medicine after = pageIndex > 0 ? lastRowOfPage.get(pageIndex - 1) : null;     // continue from the previous page when we can
+
+        PAGE_LOADER.execute(() -> {
+            List<Medicine> page = medicineDAO.getMedicinesPage(requestedFor.search, requestedFor.sort,
+                    after, pageIndex * PAGE_SIZE, PAGE_SIZE);
+            SwingUtilities.invokeLater(() -> {
+                if (view != requestedFor) {
+                    return;     // search or sort changed while loading
+                }
+                loadingPages.remove(pageIndex);
+                storePage(pageIndex, page);
+                int first = pageIndex * PAGE_SIZE;
+                int last = Math.min(first + PAGE_SIZE, view.rowCount) - 1;
+                if (last >= first) {
+                    fireTableRowsUpdated(first, last);
+                }
+            });
+        });
+    }
+
+    private void storePage(int pageIndex, List<Medicine> page) {
+        pages.put(pageIndex, page);
+        if (!page.isEmpty()) {
+            lastRowOfPage.put(pageIndex, page.get(page.size() - 1));
+        }
+    }
+
+    // A search and sort with its row count and first page, built by prepare()
+    public static class View {
+        private final String search;
+        private final MedicineSort sort;
+        private final int rowCount;
+        private final int totalCount;
+        private final List<Medicine> firstPage;
+
+        private View(String search, MedicineSort sort, int rowCount, int totalCount, List<Medicine> firstPage) {
+            this.search = search;
+            this.sort = sort;
+            this.rowCount = rowCount;
+            this.totalCount = totalCount;
+            this.firstPage = firstPage;
+        }
+    }
+}
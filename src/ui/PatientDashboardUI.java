@@ -18,6 +18,7 @@ public class PatientDashboardUI extends JFrame {
     private List<MedicineInputRow> medicineRows;
     private String patientName;
     private PharmacySearchService pharmacySearchService;
+    private static final int MAX_RANKED_PHARMACIES = 100;     // a patient never pages further than this
 
     public PatientDashboardUI() {
         User currentUser = SessionManager.getCurrentUser();
@@ -131,7 +132,7 @@ public class PatientDashboardUI extends JFrame {
         
         try {
             // Search for pharmacies with the requested medicines
-            PharmacySearchResult searchResult = pharmacySearchService.findPharmaciesForMedicines(medicineNames);
+            PharmacySearchResult searchResult = pharmacySearchService.findPharmaciesForMedicines(medicineNames, MAX_RANKED_PHARMACIES);
             
             // Display results
             displaySearchResults(searchResult, medicineNames, quantities);
@@ -1,12 +1,17 @@
 package ui;
 
 import models.Pharmacy;
+import services.InventoryImportService;
+import services.InvoiceExportService;
 import utils.SessionManager;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 
 public class PharmacyDashboard extends JFrame {
     
@@ -17,6 +22,8 @@ public class PharmacyDashboard extends JFrame {
     private JButton addMedicineButton;
     private JButton viewMedicinesButton;
     private JButton sellMedicineButton;
+    private JButton importStockButton;
+    private JButton exportInvoicesButton;
     private JButton createPharmacyButton;
     private JButton logoutButton;
     private JPanel mainPanel;
@@ -60,12 +67,16 @@ public class PharmacyDashboard extends JFrame {
         addMedicineButton = new JButton("Add New Medicine");
         viewMedicinesButton = new JButton("View All Medicines");
         sellMedicineButton = new JButton("Sell Medicine");
+        importStockButton = new JButton("Import Stock (CSV)");
+        exportInvoicesButton = new JButton("Export Invoices");
 
         
         // Style buttons
         styleButton(addMedicineButton, new Color(34, 139, 34)); // Forest Green
         styleButton(viewMedicinesButton, new Color(70, 130, 180)); // Steel Blue
         styleButton(sellMedicineButton, new Color(138, 43, 226)); // Blue Violet
+        styleButton(importStockButton, new Color(0, 128, 128)); // Teal
+        styleButton(exportInvoicesButton, new Color(112, 128, 144)); // Slate Gray
         styleButton(createPharmacyButton, new Color(255, 140, 0)); // Dark Orange
         styleButton(logoutButton, new Color(220, 20, 60)); // Crimson
         
@@ -89,6 +100,8 @@ public class PharmacyDashboard extends JFrame {
         addMedicineButton.setEnabled(hasPharmacy);
         viewMedicinesButton.setEnabled(hasPharmacy);
         sellMedicineButton.setEnabled(hasPharmacy);
+        importStockButton.setEnabled(hasPharmacy);
+        exportInvoicesButton.setEnabled(hasPharmacy);
         createPharmacyButton.setVisible(!hasPharmacy);
         
         if (!hasPharmacy) {
@@ -113,6 +126,8 @@ public class PharmacyDashboard extends JFrame {
             buttonPanel.add(addMedicineButton);
             buttonPanel.add(viewMedicinesButton);
             buttonPanel.add(sellMedicineButton);
+            buttonPanel.add(importStockButton);
+            buttonPanel.add(exportInvoicesButton);
         } else {
             buttonPanel.add(createPharmacyButton);
         }
@@ -201,6 +216,20 @@ public class PharmacyDashboard extends JFrame {
             }
         });
         
+        importStockButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                importStockFromFile();
+            }
+        });
+        
+        exportInvoicesButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportInvoices();
+            }
+        });
+        
         createPharmacyButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -237,6 +266,136 @@ public class PharmacyDashboard extends JFrame {
         });
     }
     
+    private void importStockFromFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Stock - columns: name, generic_name, brand, price, quantity, expiry_date");
+        chooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV / TSV files", "csv", "tsv", "txt"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        
+        String[] modes = {"Add to current stock", "Replace stock quantities"};
+        int modeChoice = JOptionPane.showOptionDialog(this,
+            "How should quantities of medicines already in stock be handled?",
+            "Import Stock", JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE,
+            null, modes, modes[0]);
+        if (modeChoice < 0) {
+            return;
+        }
+        InventoryImportService.Mode mode = modeChoice == 0
+            ? InventoryImportService.Mode.ADD_TO_STOCK
+            : InventoryImportService.Mode.REPLACE_STOCK;
+        
+        // Big files take a few seconds, keep the dashboard responsive meanwhile
+        importStockButton.setEnabled(false);
+        importStockButton.setText("Importing...");
+        new SwingWorker<InventoryImportService.ImportReport, Void>() {
+            @Override
+            protected InventoryImportService.ImportReport doInBackground() {
+                return new InventoryImportService().importFile(file.toPath(), pharmacy.getId(), mode);
+            }
+            
+            @Override
+            protected void done() {
+                importStockButton.setText("Import Stock (CSV)");
+                importStockButton.setEnabled(true);
+                try {
+                    showImportReport(get());
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(PharmacyDashboard.this,
+                        "Import failed: " + ex.getMessage(), "Import Stock", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+    
+    private void showImportReport(InventoryImportService.ImportReport report) {
+        StringBuilder message = new StringBuilder(report.getSummary());
+        if (!report.getRejectedLines().isEmpty()) {
+            message.append("\n\nRejected lines:\n");
+            for (String line : report.getRejectedLines()) {
+                message.append(line).append('\n');
+            }
+            if (report.getRejected() > report.getRejectedLines().size()) {
+                message.append("... and ").append(report.getRejected() - report.getRejectedLines().size()).append(" more\n");
+            }
+        }
+        JTextArea text = new JTextArea(message.toString(), 12, 60);
+        text.setEditable(false);
+        JOptionPane.showMessageDialog(this, new JScrollPane(text), "Import Stock",
+            report.isSuccess() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+    }
+    
+    private void exportInvoices() {
+        // this month so far by default
+        JTextField fromField = new JTextField(LocalDate.now().withDayOfMonth(1).toString(), 10);
+        JTextField toField = new JTextField(LocalDate.now().toString(), 10);
+        JPanel rangePanel = new JPanel(new GridLayout(0, 2, 5, 5));
+        rangePanel.add(new JLabel("From (yyyy-MM-dd):"));
+        rangePanel.add(fromField);
+        rangePanel.add(new JLabel("To (yyyy-MM-dd):"));
+        rangePanel.add(toField);
+        if (JOptionPane.showConfirmDialog(this, rangePanel, "Export Invoices",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) {
+            return;
+        }
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = LocalDate.parse(fromField.getText().trim());
+            to = LocalDate.parse(toField.getText().trim());
+        } catch (DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(this, "Please enter dates as yyyy-MM-dd.", "Export Invoices", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (to.isBefore(from)) {
+            JOptionPane.showMessageDialog(this, "The end date is before the start date.", "Export Invoices", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Save Invoices Archive");
+        chooser.setSelectedFile(new File("Invoices_" + from + "_to_" + to + ".zip"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File archive = chooser.getSelectedFile();
+        
+        exportInvoicesButton.setEnabled(false);
+        exportInvoicesButton.setText("Exporting...");
+        new SwingWorker<InvoiceExportService.ExportReport, Integer>() {
+            @Override
+            protected InvoiceExportService.ExportReport doInBackground() {
+                return new InvoiceExportService().exportInvoices(pharmacy.getId(), from, to, archive.toPath(),
+                    (exported, total) -> publish(exported * 100 / total));
+            }
+            
+            @Override
+            protected void process(java.util.List<Integer> percents) {
+                exportInvoicesButton.setText("Exporting " + percents.get(percents.size() - 1) + "%");
+            }
+            
+            @Override
+            protected void done() {
+                exportInvoicesButton.setText("Export Invoices");
+                exportInvoicesButton.setEnabled(true);
+                try {
+                    InvoiceExportService.ExportReport report = get();
+                    String message = report.getSummary();
+                    if (report.getArchivePath() != null) {
+                        message += "\n\nSaved to: " + report.getArchivePath();
+                    }
+                    JOptionPane.showMessageDialog(PharmacyDashboard.this, message, "Export Invoices",
+                        report.isSuccess() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(PharmacyDashboard.this,
+                        "Export failed: " + ex.getMessage(), "Export Invoices", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+    
     private void openCreatePharmacyForm() {
         SwingUtilities.invokeLater(() -> {
             PharmacyRegistrationFormUI createForm = new PharmacyRegistrationFormUI();
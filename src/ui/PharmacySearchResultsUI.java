@@ -17,6 +17,9 @@ public class PharmacySearchResultsUI extends JFrame {
     @SuppressWarnings("unused")
     private List<String> quantities;
     private String patientName;
+    private static final int PAGE_SIZE = 10;
+    private int shownCount;
+    private JButton showMoreButton;
 
     public PharmacySearchResultsUI(PatientDashboardUI parent, PharmacySearchResult result, 
                                  List<String> medicines, List<String> quantities, String patientName) {
@@ -93,15 +96,16 @@ public class PharmacySearchResultsUI extends JFrame {
 
     private void populateResults() {
         // Show combined ranked results
-        if (!searchResult.getRankedPharmacies().isEmpty()) {
+        if (searchResult.getRankedCount() > 0) {
             addSectionHeader("Pharmacies ranked by medicine availability:");
             
-            int count = 0;
-            for (PharmacyAvailability availability : searchResult.getRankedPharmacies()) {
-                if (count >= 10) break; // Show top 10 results
-                addRankedPharmacyPanel(availability, count + 1);
-                count++;
-            }
+            showMoreButton = new JButton("Show more pharmacies");
+            styleButton(showMoreButton, new Color(70, 130, 180));
+            showMoreButton.setPreferredSize(new Dimension(240, 40));
+            showMoreButton.setAlignmentX(Component.LEFT_ALIGNMENT);
+            showMoreButton.addActionListener(e -> showNextPage());
+            
+            showNextPage(); // Show top 10 results
         } else {
             // No results message
             JLabel noResultsLabel = new JLabel("No pharmacies found with the requested medicines.");
@@ -111,6 +115,22 @@ public class PharmacySearchResultsUI extends JFrame {
         }
     }
 
+    // Builds panels only for the next page of the ranking, the rest stay unmaterialized until asked for
+    private void showNextPage() {
+        mainPanel.remove(showMoreButton);
+        
+        for (PharmacyAvailability availability : searchResult.getRankedPharmacies(shownCount, PAGE_SIZE)) {
+            shownCount++;
+            addRankedPharmacyPanel(availability, shownCount);
+        }
+        
+        if (shownCount < searchResult.getRankedCount()) {
+            mainPanel.add(showMoreButton);
+        }
+        mainPanel.revalidate();
+        mainPanel.repaint();
+    }
+
     private void addSectionHeader(String text) {
         JLabel headerLabel = new JLabel(text);
         headerLabel.setFont(new Font("Arial", Font.BOLD, 18));
@@ -4,6 +4,7 @@ import models.Medicine;
 import models.Pharmacy;
 import models.SaleItem;
 import services.MedicineService;
+import utils.MedicineSearchIndex;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -16,10 +17,13 @@ import java.util.stream.Collectors;
 
 public class SellMedicineUI extends JFrame {
     
+    private static final int MAX_SUGGESTIONS = 500;     // enough to scroll through, small enough to fill the list instantly
+    
     private Pharmacy pharmacy;
     private PharmacyDashboard parentDashboard;
     private MedicineService medicineService;
     private List<Medicine> availableMedicines;
+    private MedicineSearchIndex searchIndex;
     private List<SaleItem> cartItems;
     
     // UI Components
@@ -61,6 +65,13 @@ public class SellMedicineUI extends JFrame {
         availableMedicines = availableMedicines.stream()
                 .filter(medicine -> medicine.getQuantity() > 0)
                 .collect(Collectors.toList());
+        
+        // Built once per window, later refreshes only re-index medicines that changed
+        if (searchIndex == null) {
+            searchIndex = new MedicineSearchIndex(availableMedicines);
+        } else {
+            searchIndex.replaceAll(availableMedicines);
+        }
     }
     
     private void initializeComponents() {
@@ -223,8 +234,7 @@ public class SellMedicineUI extends JFrame {
         medicineSearchField.addKeyListener(new KeyAdapter() {
             @Override
             public void keyReleased(KeyEvent e) {
-                String searchText = medicineSearchField.getText().toLowerCase();
-                updateMedicineList(searchText);
+                updateMedicineList(medicineSearchField.getText());
             }
         });
         
@@ -258,18 +268,10 @@ public class SellMedicineUI extends JFrame {
     }
     
     private void updateMedicineList(String searchText) {
-        medicineListModel.clear();
+        List<Medicine> matches = searchIndex.search(searchText, MAX_SUGGESTIONS);
         
-        List<Medicine> filteredMedicines = availableMedicines.stream()
-                .filter(medicine -> 
-                    medicine.getName().toLowerCase().contains(searchText) ||
-                    medicine.getGenericName().toLowerCase().contains(searchText) ||
-                    medicine.getBrand().toLowerCase().contains(searchText))
-                .collect(Collectors.toList());
-        
-        for (Medicine medicine : filteredMedicines) {
-            medicineListModel.addElement(medicine);
-        }
+        medicineListModel.clear();
+        medicineListModel.addAll(matches);     // one change event instead of one per medicine
     }
     
     private void addSelectedMedicineToCart() {
@@ -386,7 +388,7 @@ public class SellMedicineUI extends JFrame {
         cartItems.clear();
         updateCartTable();
         initializeData(); // Refresh available medicines
-        updateMedicineList(medicineSearchField.getText().toLowerCase());
+        updateMedicineList(medicineSearchField.getText());
         
         // Refresh parent dashboard
         if (parentDashboard != null) {
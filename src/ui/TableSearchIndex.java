@@ -0,0 +1,89 @@
+package ui;
+
+import javax.swing.*;
+import javax.swing.table.TableModel;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+
+/**
+ * TableSearchIndex - Lower-cased snapshot of a table's rows for background filtering.
+ * Taken on the EDT after the table is loaded; match() can then run on any thread and
+ * returns the model rows containing the query as a BitSet, which Match.toRowFilter() turns
+ * into a RowFilter that only does a bit lookup per row.
+ */
+public class TableSearchIndex {
+    private final String[] rows;        // every column of a row, lower-cased, joined by '\u0001'
+
+    private TableSearchIndex(String[] rows) {
+        this.rows = rows;
+    }
+
+    public static TableSearchIndex empty() {
+        return new TableSearchIndex(new String[0]);
+    }
+
+    // Call on the EDT, the model isn't safe to read from other threads
+    public static TableSearchIndex snapshot(TableModel model) {
+        String[] rows = new String[model.getRowCount()];
+        StringBuilder row = new StringBuilder();
+        for (int r = 0; r < rows.length; r++) {
+            row.setLength(0);
+            for (int c = 0; c < model.getColumnCount(); c++) {
+                Object value = model.getValueAt(r, c);
+                row.append('\u0001').append(value != null ? value : "");
+            }
+            rows[r] = row.toString().toLowerCase(Locale.ROOT);
+        }
+        return new TableSearchIndex(rows);
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    // Model rows containing query (case-insensitive, plain text); null if the search was cancelled
+    public Match match(String query, BooleanSupplier cancelled) {
+        String needle = query.trim().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            return new Match(this, null);
+        }
+        BitSet matches = new BitSet(rows.length);
+        for (int r = 0; r < rows.length; r++) {
+            if ((r & 4095) == 0 && cancelled.getAsBoolean()) {
+                return null;
+            }
+            if (rows[r].contains(needle)) {
+                matches.set(r);
+            }
+        }
+        return new Match(this, matches);
+    }
+
+    public static class Match {
+        private final TableSearchIndex index;
+        private final BitSet rows;      // null = no query, show everything
+
+        private Match(TableSearchIndex index, BitSet rows) {
+            this.index = index;
+            this.rows = rows;
+        }
+
+        // False once the table was reloaded after this search started, the row numbers no longer line up
+        public boolean appliesTo(TableSearchIndex current) {
+            return index == current;
+        }
+
+        public <M extends TableModel> RowFilter<M, Integer> toRowFilter() {
+            if (rows == null) {
+                return null;
+            }
+            return new RowFilter<M, Integer>() {
+                @Override
+                public boolean include(Entry<? extends M, ? extends Integer> entry) {
+                    return rows.get(entry.getIdentifier());
+                }
+            };
+        }
+    }
+}
@@ -29,6 +29,7 @@ public class ViewMedicinesTableUI extends JFrame {
     private JButton updateButton;
     private JButton deleteButton;
     private JButton closeButton;
+    private DebouncedSearchController<List<Medicine>> searchController;
 
     
     public ViewMedicinesTableUI(Pharmacy pharmacy, PharmacyDashboard parentDashboard) {
@@ -144,6 +145,11 @@ public class ViewMedicinesTableUI extends JFrame {
             }
         });
         
+        // Live search: runs in the background once the user stops typing
+        searchController = new DebouncedSearchController<>(searchField, 250,
+                (query, cancelled) -> findMedicines(query.trim()),
+                medicines -> showMedicines(medicines, searchField.getText().trim()));
+        
         // Search button - search for medicines
         searchButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
@@ -191,35 +197,9 @@ public class ViewMedicinesTableUI extends JFrame {
     
     // Load all medicines into the table
     private void loadAllMedicines() {
-        // Clear the table first
-        tableModel.setRowCount(0);
-        
         try {
             // Get all medicines for this pharmacy
-            List<Medicine> medicines = medicineService.getAllMedicines(pharmacy.getId());
-            
-            // Add each medicine to the table
-            for (Medicine medicine : medicines) {
-                Object[] row = {
-                    medicine.getId(),
-                    medicine.getName(),
-                    medicine.getGenericName(),
-                    medicine.getBrand(),
-                    "$" + medicine.getPrice(),
-                    medicine.getQuantity()
-                };
-                tableModel.addRow(row);
-            }
-            
-            // Show message if no medicines found
-            if (medicines.isEmpty()) {
-                Object[] emptyRow = {"No medicines found", "", "", "", "", ""};
-                tableModel.addRow(emptyRow);
-            }
-            
-            // Update window title with count
-            setTitle("All Medicines - " + pharmacy.getName() + " (" + medicines.size() + " medicines)");
-            
+            showMedicines(medicineService.getAllMedicines(pharmacy.getId()), "");
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, 
                 "Error loading medicines: " + e.getMessage(),
@@ -228,55 +208,60 @@ public class ViewMedicinesTableUI extends JFrame {
         }
     }
     
-    // Search for medicines
+    // Search for medicines right away (Search button / Enter), typing goes through the same path after a pause
     private void searchMedicines() {
-        String searchText = searchField.getText().trim();
-        
+        searchController.searchNow();
+    }
+    
+    // Runs on the search thread, never touches the table
+    private List<Medicine> findMedicines(String searchText) {
         // If search is empty, load all medicines
         if (searchText.isEmpty()) {
-            loadAllMedicines();
-            return;
+            return medicineService.getAllMedicines(pharmacy.getId());
         }
         
+        // Search for medicines in this pharmacy only, the database does the filtering
+        return medicineService.searchMedicineByName(searchText, pharmacy.getId());
+    }
+    
+    // Fill the table with medicines, searchText is empty when showing the whole stock
+    private void showMedicines(List<Medicine> medicines, String searchText) {
         // Clear the table first
         tableModel.setRowCount(0);
         
-        try {
-            // Search for medicines
-            List<Medicine> medicines = medicineService.searchMedicineByName(searchText);
-            
-            // Filter to only show medicines from this pharmacy
-            int count = 0;
-            for (Medicine medicine : medicines) {
-                if (medicine.getPharmacyId() == pharmacy.getId()) {
-                    Object[] row = {
-                        medicine.getId(),
-                        medicine.getName(),
-                        medicine.getGenericName(),
-                        medicine.getBrand(),
-                        "$" + medicine.getPrice(),
-                        medicine.getQuantity()
-                    };
-                    tableModel.addRow(row);
-                    count++;
-                }
+        // Add each medicine to the table
+        for (Medicine medicine : medicines) {
+            Object[] row = {
+                medicine.getId(),
+                medicine.getName(),
+                medicine.getGenericName(),
+                medicine.getBrand(),
+                "$" + medicine.getPrice(),
+                medicine.getQuantity()
+            };
+            tableModel.addRow(row);
+        }
+        
+        // Show message if no medicines found, and update window title with count
+        if (searchText.isEmpty()) {
+            if (medicines.isEmpty()) {
+                tableModel.addRow(new Object[]{"No medicines found", "", "", "", "", ""});
             }
-            
-            // Show message if no medicines found
-            if (count == 0) {
-                Object[] emptyRow = {"No medicines found for: " + searchText, "", "", "", "", ""};
-                tableModel.addRow(emptyRow);
+            setTitle("All Medicines - " + pharmacy.getName() + " (" + medicines.size() + " medicines)");
+        } else {
+            if (medicines.isEmpty()) {
+                tableModel.addRow(new Object[]{"No medicines found for: " + searchText, "", "", "", "", ""});
             }
-            
-            // Update window title
-            setTitle("Search Results - " + pharmacy.getName() + " (" + count + " medicines found)");
-            
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, 
-                "Error searching medicines: " + e.getMessage(),
-                "Error", 
-                JOptionPane.ERROR_MESSAGE);
+            setTitle("Search Results - " + pharmacy.getName() + " (" + medicines.size() + " medicines found)");
+        }
+    }
+    
+    @Override
+    public void dispose() {
+        if (searchController != null) {
+            searchController.dispose();
         }
+        super.dispose();
     }
     
     // Update the selected medicine
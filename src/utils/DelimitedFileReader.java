@@ -0,0 +1,107 @@
+package utils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DelimitedFileReader - Reads a CSV or TSV file one record at a time.
+ * Handles quoted fields ("a, b"), doubled quotes inside them ("5"" tablet") and quoted
+ * fields spanning lines, so supplier exports from spreadsheets load as they are.
+ * Only the current record is held in memory.
+ */
+public class DelimitedFileReader implements Closeable {
+    private final BufferedReader reader;
+    private final char delimiter;
+    private long lineNumber;            // lines read so far
+    private long recordLineNumber;      // first line of the last record returned
+
+    public DelimitedFileReader(Reader reader, char delimiter) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, 1 << 16);
+        this.delimiter = delimiter;
+    }
+
+    // Tab if the header has one, otherwise semicolon when it has more of those than commas, otherwise comma
+    public static char detectDelimiter(String headerLine) {
+        if (headerLine.indexOf('\t') >= 0) {
+            return '\t';
+        }
+        long commas = headerLine.chars().filter(c -> c == ',').count();
+        long semicolons = headerLine.chars().filter(c -> c == ';').count();
+        return semicolons > commas ? ';' : ',';
+    }
+
+    // The next record's fields, or null at the end of the file. Blank lines are skipped.
+    public List<String> readRecord() throws IOException {
+        String line = reader.readLine();
+        while (line != null && line.isEmpty()) {
+            lineNumber++;
+            line = reader.readLine();
+        }
+        if (line == null) {
+            return null;
+        }
+        lineNumber++;
+        recordLineNumber = lineNumber;
+        if (recordLineNumber == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+            line = line.substring(1);       // byte order mark from Excel
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                // quoted field continues on the next line
+                String next = reader.readLine();
+                if (next == null) {
+                    break;      // unterminated quote, keep what we have
+                }
+                lineNumber++;
+                field.append('\n');
+                line = next;
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c == '"') {
+                    if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Line the last record started on, 1-based, for error messages
+    public long getRecordLineNumber() {
+        return recordLineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
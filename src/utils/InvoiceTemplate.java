@@ -0,0 +1,521 @@
+package utils;
+
+import models.Invoice;
+import models.SaleItem;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * InvoiceTemplate - Invoice layout a pharmacy can change without touching code.
+ * A template is plain text, one printed line per template line, in a monospaced font so columns
+ * line up by character count. It is parsed once into steps (literal text or a field with a width),
+ * and printing an invoice just runs those steps into a reused StringBuilder - no String.format,
+ * no regex, nothing parsed per invoice.
+ *
+ * Line directives:
+ *   @title text      big, bold and centered          @center text   centered
+ *   @bold text       bold                            @rule          horizontal line
+ *   @items ... @end  the block between is printed once per item; inside it,
+ *   @header text     is the table header, repeated at the top of every page
+ *   @continued text  first line of every page after the first
+ *   any other line is printed as is, an empty line leaves a gap
+ *
+ * Fields are written {name}, {name:20} (left aligned, cut to 20 chars) or {name:>12} (right aligned);
+ * {{ and }} print a brace. Fields: invoice.id, date, pharmacy.name, pharmacy.area, patient.name,
+ * patient.phone, total, items.count, items.lines, and inside @items only: item.number, item.name,
+ * item.generic, item.brand, item.qty, item.price, item.subtotal.
+ *
+ * Templates are read from <templateDir>/invoice-<pharmacyId>.txt, then <templateDir>/invoice.txt,
+ * else the built-in DEFAULT_TEMPLATE; edited files are picked up within a few seconds.
+ * The folder is -Dpharmapoint.invoice.templateDir (default "templates").
+ */
+public class InvoiceTemplate {
+
+    public enum Style {
+        TEXT, BOLD, TITLE, CENTER, RULE
+    }
+
+    public static final String DEFAULT_TEMPLATE = """
+            @title INVOICE
+            @rule
+            @bold Invoice ID: {invoice.id:30}               Date: {date:>19}
+
+            @bold PHARMACY DETAILS
+            Name: {pharmacy.name}
+            Area: {pharmacy.area}
+
+            @bold PATIENT DETAILS
+            Name: {patient.name}
+            Phone: {patient.phone}
+
+            @continued Invoice ID: {invoice.id} (continued)
+            @items
+            @header Medicine                         Brand               Qty   Unit Price     Subtotal
+            {item.name:32} {item.brand:17} {item.qty:>5} {item.price:>12} {item.subtotal:>12}
+            @end
+            @rule
+            Items: {items.count:>75}
+            @bold Total: {total:>71} BDT
+
+            @center Thank you for your business!
+            """;
+
+    private static final DateTimeFormatter PRINTED_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    private static final long RELOAD_CHECK_NANOS = 3_000_000_000L;
+    private static final char[] SPACES = new char[256];
+
+    static {
+        Arrays.fill(SPACES, ' ');
+    }
+
+    private static final InvoiceTemplate BUILT_IN = parse(DEFAULT_TEMPLATE);
+    private static final Map<Path, Cached> FILES = new ConcurrentHashMap<>();
+    private static final Map<Integer, Cached> BY_PHARMACY = new ConcurrentHashMap<>();
+
+    private final List<Line> header;         // before the items
+    private final Line itemHeader;           // may be null
+    private final List<Line> itemLines;
+    private final List<Line> footer;         // after the items
+    private final Line continued;            // may be null
+
+    private InvoiceTemplate(List<Line> header, Line itemHeader, List<Line> itemLines, List<Line> footer, Line continued) {
+        this.header = header;
+        this.itemHeader = itemHeader;
+        this.itemLines = itemLines;
+        this.footer = footer;
+        this.continued = continued;
+    }
+
+    public List<Line> getHeader() {
+        return header;
+    }
+
+    public Line getItemHeader() {
+        return itemHeader;
+    }
+
+    public List<Line> getItemLines() {
+        return itemLines;
+    }
+
+    public List<Line> getFooter() {
+        return footer;
+    }
+
+    public Line getContinued() {
+        return continued;
+    }
+
+    public static InvoiceTemplate getDefault() {
+        return BUILT_IN;
+    }
+
+    // The pharmacy's own template if it has one, else the shared one, else the built-in layout.
+    // Called for every invoice, so the answer is kept for a few seconds before the files are looked at again.
+    public static InvoiceTemplate forPharmacy(int pharmacyId) {
+        long now = System.nanoTime();
+        Cached resolved = BY_PHARMACY.get(pharmacyId);
+        if (resolved != null && now - resolved.checkedAt < RELOAD_CHECK_NANOS) {
+            return resolved.template;
+        }
+
+        Path folder = Paths.get(System.getProperty("pharmapoint.invoice.templateDir", "templates"));
+        InvoiceTemplate template = load(folder.resolve("invoice-" + pharmacyId + ".txt"), now);
+        if (template == null) {
+            template = load(folder.resolve("invoice.txt"), now);
+        }
+        if (template == null) {
+            template = BUILT_IN;
+        }
+        BY_PHARMACY.put(pharmacyId, new Cached(null, template, now));
+        return template;
+    }
+
+    // null if there is no such file or it doesn't parse (the error is logged once per change)
+    private static InvoiceTemplate load(Path file, long now) {
+        Cached cached = FILES.get(file);
+
+        FileTime modified = null;
+        try {
+            if (Files.isRegularFile(file)) {
+                modified = Files.getLastModifiedTime(file);
+            }
+        } catch (IOException e) {
+            // treated as missing
+        }
+        if (cached != null && (cached.modified == null ? modified == null : cached.modified.equals(modified))) {
+            return cached.template;
+        }
+
+        InvoiceTemplate template = null;
+        if (modified != null) {
+            try {
+                template = parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+                System.out.println("Loaded invoice template " + file);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Invoice template " + file + " ignored: " + e.getMessage());
+            }
+        }
+        FILES.put(file, new Cached(modified, template, now));
+        return template;
+    }
+
+    public static InvoiceTemplate parse(String source) {
+        List<Line> header = new ArrayList<>();
+        List<Line> itemLines = new ArrayList<>();
+        List<Line> footer = new ArrayList<>();
+        Line itemHeader = null;
+        Line continued = null;
+        boolean inItems = false;
+        boolean itemsSeen = false;
+
+        String[] lines = source.split("\r?\n", -1);
+        int count = lines.length;
+        if (count > 0 && lines[count - 1].isEmpty()) {
+            count--;        // trailing newline
+        }
+        for (int number = 1; number <= count; number++) {
+            String text = lines[number - 1];
+            String directive = text.startsWith("@") ? firstWord(text) : "";
+            String rest = text.length() > directive.length() ? text.substring(directive.length() + 1) : "";
+
+            switch (directive) {
+                case "@items":
+                    if (itemsSeen) {
+                        throw error(number, "only one @items block is allowed");
+                    }
+                    inItems = true;
+                    itemsSeen = true;
+                    continue;
+                case "@end":
+                    if (!inItems) {
+                        throw error(number, "@end without @items");
+                    }
+                    inItems = false;
+                    continue;
+                case "@header":
+                    if (!inItems) {
+                        throw error(number, "@header belongs inside @items");
+                    }
+                    itemHeader = compile(Style.BOLD, rest, false, number);
+                    continue;
+                case "@continued":
+                    continued = compile(Style.BOLD, rest, false, number);
+                    continue;
+                default:
+                    break;
+            }
+
+            Line line;
+            switch (directive) {
+                case "@title": line = compile(Style.TITLE, rest, inItems, number); break;
+                case "@center": line = compile(Style.CENTER, rest, inItems, number); break;
+                case "@bold": line = compile(Style.BOLD, rest, inItems, number); break;
+                case "@rule": line = new Line(Style.RULE, new Step[0]); break;
+                case "": line = compile(Style.TEXT, text, inItems, number); break;
+                default: throw error(number, "unknown directive " + directive);
+            }
+            (inItems ? itemLines : itemsSeen ? footer : header).add(line);
+        }
+        if (inItems) {
+            throw error(count, "@items without @end");
+        }
+        return new InvoiceTemplate(List.copyOf(header), itemHeader, List.copyOf(itemLines), List.copyOf(footer), continued);
+    }
+
+    private static Line compile(Style style, String text, boolean itemFieldsAllowed, int number) {
+        List<Step> steps = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if ((c == '{' || c == '}') && i + 1 < text.length() && text.charAt(i + 1) == c) {
+                literal.append(c);
+                i += 2;
+                continue;
+            }
+            if (c != '{') {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            int close = text.indexOf('}', i);
+            if (close < 0) {
+                throw error(number, "missing } after column " + (i + 1));
+            }
+            if (literal.length() > 0) {
+                steps.add(new LiteralStep(literal.toString()));
+                literal.setLength(0);
+            }
+            steps.add(compileField(text.substring(i + 1, close), itemFieldsAllowed, number));
+            i = close + 1;
+        }
+        if (literal.length() > 0) {
+            steps.add(new LiteralStep(literal.toString()));
+        }
+        return new Line(style, steps.toArray(new Step[0]));
+    }
+
+    private static Step compileField(String spec, boolean itemFieldsAllowed, int number) {
+        int colon = spec.indexOf(':');
+        String name = (colon < 0 ? spec : spec.substring(0, colon)).trim();
+        Field field = Field.byName(name);
+        if (field == null) {
+            throw error(number, "unknown field {" + name + "}");
+        }
+        if (field.perItem && !itemFieldsAllowed) {
+            throw error(number, "{" + name + "} can only be used inside @items");
+        }
+        if (colon < 0) {
+            return new FieldStep(field, 0, false);
+        }
+        String width = spec.substring(colon + 1).trim();
+        boolean right = width.startsWith(">");
+        if (right) {
+            width = width.substring(1);
+        }
+        try {
+            int columns = Integer.parseInt(width);
+            if (columns < 0 || columns > SPACES.length) {
+                throw error(number, "width of {" + name + "} must be 0-" + SPACES.length);
+            }
+            return new FieldStep(field, columns, right);
+        } catch (NumberFormatException e) {
+            throw error(number, "bad width in {" + spec + "}");
+        }
+    }
+
+    private static String firstWord(String text) {
+        int space = text.indexOf(' ');
+        return space < 0 ? text : text.substring(0, space);
+    }
+
+    private static IllegalArgumentException error(int line, String message) {
+        return new IllegalArgumentException("line " + line + ": " + message);
+    }
+
+    // Prints one template line into out (cleared first); item and itemNumber are only used by item fields
+    public static void format(Line line, Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+        out.setLength(0);
+        for (Step step : line.steps) {
+            step.append(invoice, item, itemNumber, out);
+        }
+    }
+
+
+    public static final class Line {
+        private final Style style;
+        private final Step[] steps;
+
+        private Line(Style style, Step[] steps) {
+            this.style = style;
+            this.steps = steps;
+        }
+
+        public Style getStyle() {
+            return style;
+        }
+    }
+
+    private interface Step {
+        void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out);
+    }
+
+    private static final class LiteralStep implements Step {
+        private final String text;
+
+        LiteralStep(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+            out.append(text);
+        }
+    }
+
+    private static final class FieldStep implements Step {
+        private final Field field;
+        private final int width;        // 0 = as long as the value
+        private final boolean right;
+
+        FieldStep(Field field, int width, boolean right) {
+            this.field = field;
+            this.width = width;
+            this.right = right;
+        }
+
+        @Override
+        public void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+            int start = out.length();
+            field.append(invoice, item, itemNumber, out);
+            if (width == 0) {
+                return;
+            }
+            int length = out.length() - start;
+            if (length > width) {
+                if (!right) {
+                    // cut text that would run into the next column, "..." shows it was cut
+                    out.setLength(start + width);
+                    if (width > 3) {
+                        out.replace(start + width - 3, start + width, "...");
+                    }
+                }
+                return;     // numbers are never cut, a wrong amount is worse than a crooked column
+            }
+            if (right) {
+                out.insert(start, SPACES, 0, width - length);
+            } else {
+                out.append(SPACES, 0, width - length);
+            }
+        }
+    }
+
+    private enum Field {
+        INVOICE_ID("invoice.id", false) {
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                out.append(invoice.getId());
+            }
+        },
+        DATE("date", false) {
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                if (invoice.getCreatedAt() != null) {
+                    PRINTED_DATE.formatTo(invoice.getCreatedAt(), out);
+                }
+            }
+        },
+        PHARMACY_NAME("pharmacy.name", false) {
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                appendText(invoice.getPharmacyName(), out);
+            }
+        },
+        PHARMACY_AREA("pharmacy.area", false) {
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                appendText(invoice.getPharmacyArea(), out);
+            }
+        },
+        PATIENT_NAME("patient.name", false) {
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                appendText(invoice.getPatientName(), out);
+            }
+        },
+        PATIENT_PHONE("patient.phone", false) {
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                appendText(invoice.getPatientPhone(), out);
+            }
+        },
+        TOTAL("total", false) {
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                appendAmount(invoice.getTotalAmount(), out);
+            }
+        },
+        ITEMS_COUNT("items.count", false) {         // units sold
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                out.append(invoice.getTotalItems());
+            }
+        },
+        ITEMS_LINES("items.lines", false) {         // different medicines
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                out.append(invoice.getItems().size());
+            }
+        },
+        ITEM_NUMBER("item.number", true) {
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                out.append(itemNumber);
+            }
+        },
+        ITEM_NAME("item.name", true) {
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                appendText(item.getMedicine().getName(), out);
+            }
+        },
+        ITEM_GENERIC("item.generic", true) {
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                appendText(item.getMedicine().getGenericName(), out);
+            }
+        },
+        ITEM_BRAND("item.brand", true) {
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                appendText(item.getMedicine().getBrand(), out);
+            }
+        },
+        ITEM_QTY("item.qty", true) {
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                out.append(item.getQuantity());
+            }
+        },
+        ITEM_PRICE("item.price", true) {
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                appendAmount(item.getMedicine().getPrice(), out);
+            }
+        },
+        ITEM_SUBTOTAL("item.subtotal", true) {
+            void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out) {
+                appendAmount(item.getSubtotal(), out);
+            }
+        };
+
+        private final String name;
+        private final boolean perItem;
+
+        Field(String name, boolean perItem) {
+            this.name = name;
+            this.perItem = perItem;
+        }
+
+        abstract void append(Invoice invoice, SaleItem item, int itemNumber, StringBuilder out);
+
+        static Field byName(String name) {
+            for (Field field : values()) {
+                if (field.name.equals(name)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static void appendText(String value, StringBuilder out) {
+        if (value != null) {
+            out.append(value);
+        }
+    }
+
+    // 1234.5 -> "1234.50" without a Formatter
+    static void appendAmount(double amount, StringBuilder out) {
+        long cents = Math.round(amount * 100);
+        if (cents < 0) {
+            out.append('-');
+            cents = -cents;
+        }
+        out.append(cents / 100).append('.');
+        long fraction = cents % 100;
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    private static final class Cached {
+        final FileTime modified;            // null = no file
+        final InvoiceTemplate template;     // null = no file or it didn't parse
+        final long checkedAt;
+
+        Cached(FileTime modified, InvoiceTemplate template, long checkedAt) {
+            this.modified = modified;
+            this.template = template;
+            this.checkedAt = checkedAt;
+        }
+    }
+}
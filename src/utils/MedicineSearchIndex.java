@@ -0,0 +1,387 @@
+package utils;
+
+import models.Medicine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MedicineSearchIndex - In-memory type-ahead index over one pharmacy's catalog.
+ * Name, generic name and brand are lower-cased once when a medicine is added, and every
+ * 3-character slice (trigram) of them points to the medicines containing it. A query of 3+
+ * characters only looks at the medicines that hold all of its trigrams; shorter queries scan
+ * the pre-lower-cased strings, which is still allocation free.
+ *
+ * Results are ranked: name starts with the query, then a word in the name does, then the name
+ * contains it, then generic name, then brand. Within a rank medicines keep name order: slots are
+ * handed out in name order, and an add or rename that lands out of order makes the next search
+ * rebuild the index first, so a search can stop as soon as the best rank is full.
+ *
+ * Not thread-safe, the sell screen builds and queries it on the EDT.
+ */
+public class MedicineSearchIndex {
+
+    private static final int RANKS = 6;
+
+    private final List<Entry> entries = new ArrayList<>();             // slot -> entry, null once removed
+    private final Map<Integer, Integer> slotById = new HashMap<>();    // medicine id -> slot
+    private final TrigramTable postings = new TrigramTable();         // trigram -> slots, ascending
+    private int removedCount;
+    private boolean inNameOrder = true;     // false once an appended slot sorts before the one above it
+
+    public MedicineSearchIndex() {
+    }
+
+    public MedicineSearchIndex(List<Medicine> medicines) {
+        rebuild(medicines);
+    }
+
+    public int size() {
+        return slotById.size();
+    }
+
+    // Drops everything and indexes medicines in name order
+    public void rebuild(List<Medicine> medicines) {
+        entries.clear();
+        slotById.clear();
+        postings.clear();
+        removedCount = 0;
+        inNameOrder = true;
+        List<Entry> sorted = new ArrayList<>(medicines.size());
+        for (Medicine medicine : medicines) {
+            sorted.add(new Entry(medicine));
+        }
+        sorted.sort(Comparator.comparing(entry -> entry.name));     // already lower-cased, no work per comparison
+        for (Entry entry : sorted) {
+            if (!slotById.containsKey(entry.medicine.getId())) {
+                addEntry(entry);
+            }
+        }
+    }
+
+    // Brings the index in line with a freshly loaded catalog, only medicines whose text changed are re-indexed
+    public void replaceAll(List<Medicine> medicines) {
+        Set<Integer> keep = new HashSet<>();
+        for (Medicine medicine : medicines) {
+            keep.add(medicine.getId());
+            update(medicine);
+        }
+        for (Integer id : new ArrayList<>(slotById.keySet())) {
+            if (!keep.contains(id)) {
+                remove(id);
+            }
+        }
+    }
+
+    public void add(Medicine medicine) {
+        if (slotById.containsKey(medicine.getId())) {
+            update(medicine);
+            return;
+        }
+        addEntry(new Entry(medicine));
+    }
+
+    private void addEntry(Entry entry) {
+        int slot = entries.size();
+        if (slot > 0 && entry.name.compareTo(lastName()) < 0) {
+            inNameOrder = false;        // new medicines and renames are appended, the next search re-sorts
+        }
+        entries.add(entry);
+        slotById.put(entry.medicine.getId(), slot);
+
+        // slots only grow, so appending keeps every posting list sorted and makes duplicates easy to spot
+        indexTrigrams(entry.name, slot);
+        indexTrigrams(entry.genericName, slot);
+        indexTrigrams(entry.brand, slot);
+    }
+
+    // Name of the last live slot; live slots ascend by name while inNameOrder holds
+    private String lastName() {
+        for (int slot = entries.size() - 1; slot >= 0; slot--) {
+            if (entries.get(slot) != null) {
+                return entries.get(slot).name;
+            }
+        }
+        return "";
+    }
+
+    // Swaps in the new object; the trigrams are only rebuilt if name, generic name or brand changed
+    public void update(Medicine medicine) {
+        Integer slot = slotById.get(medicine.getId());
+        if (slot == null) {
+            add(medicine);
+            return;
+        }
+        Entry current = entries.get(slot);
+        Entry updated = new Entry(medicine);
+        if (current.sameText(updated)) {
+            entries.set(slot, updated);
+        } else {
+            remove(medicine.getId());
+            add(medicine);
+        }
+    }
+
+    public void remove(int medicineId) {
+        Integer slot = slotById.remove(medicineId);
+        if (slot == null) {
+            return;
+        }
+        entries.set(slot, null);        // posting lists still mention the slot, lookups skip it
+        removedCount++;
+        if (removedCount > 1024 && removedCount > slotById.size()) {
+            compact();
+        }
+    }
+
+    // Best matches first, at most limit of them (limit <= 0 returns all); an empty query returns the catalog in name order
+    public List<Medicine> search(String query, int limit) {
+        String needle = lower(query).trim();
+        int max = limit > 0 ? limit : Integer.MAX_VALUE;
+        if (!inNameOrder) {
+            compact();      // both the early stop below and the empty query rely on slots being in name order
+        }
+        List<Medicine> results = new ArrayList<>(Math.min(max, Math.max(size(), 1)));
+
+        if (needle.isEmpty()) {
+            for (Entry entry : entries) {
+                if (entry != null) {
+                    if (results.size() >= max) {
+                        break;
+                    }
+                    results.add(entry.medicine);
+                }
+            }
+            return results;
+        }
+
+        IntList[] ranked = new IntList[RANKS];
+        IntList[] lists = needle.length() < 3 ? null : postingsFor(needle);
+        if (needle.length() >= 3 && lists == null) {
+            return results;     // some trigram of the query appears nowhere
+        }
+        // Slots are in name order, so once the best rank holds max medicines nothing later can make the cut
+        if (lists == null || lists[0].size > entries.size() / 4) {
+            // short or very common query, checking every medicine is cheaper than intersecting long lists
+            for (int slot = 0; slot < entries.size() && !full(ranked, max); slot++) {
+                rankInto(ranked, slot, needle);
+            }
+        } else {
+            IntList smallest = lists[0];
+            for (int i = 0; i < smallest.size && !full(ranked, max); i++) {
+                int slot = smallest.values[i];
+                if (inAll(lists, slot)) {
+                    rankInto(ranked, slot, needle);
+                }
+            }
+        }
+
+        for (IntList slots : ranked) {
+            if (slots == null) {
+                continue;
+            }
+            for (int i = 0; i < slots.size && results.size() < max; i++) {
+                results.add(entries.get(slots.values[i]).medicine);
+            }
+        }
+        return results;
+    }
+
+    // Sorted smallest first, or null when a trigram has no postings
+    private IntList[] postingsFor(String needle) {
+        Set<Long> trigrams = new HashSet<>();
+        collectTrigrams(needle, trigrams);
+        IntList[] lists = new IntList[trigrams.size()];
+        int i = 0;
+        for (Long trigram : trigrams) {
+            IntList list = postings.get(trigram);
+            if (list == null) {
+                return null;
+            }
+            lists[i++] = list;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+        return lists;
+    }
+
+    private static boolean full(IntList[] ranked, int max) {
+        return ranked[0] != null && ranked[0].size >= max;
+    }
+
+    private static boolean inAll(IntList[] lists, int slot) {
+        for (int i = 1; i < lists.length; i++) {
+            if (Arrays.binarySearch(lists[i].values, 0, lists[i].size, slot) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Trigrams only narrow the candidates, the actual substring check happens here
+    private void rankInto(IntList[] ranked, int slot, String needle) {
+        Entry entry = entries.get(slot);
+        if (entry == null) {
+            return;
+        }
+        int rank = entry.rank(needle);
+        if (rank >= 0) {
+            if (ranked[rank] == null) {
+                ranked[rank] = new IntList();
+            }
+            ranked[rank].add(slot);
+        }
+    }
+
+    private void compact() {
+        List<Medicine> live = new ArrayList<>(slotById.size());
+        for (Entry entry : entries) {
+            if (entry != null) {
+                live.add(entry.medicine);
+            }
+        }
+        rebuild(live);
+    }
+
+    private void indexTrigrams(String text, int slot) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            IntList list = postings.getOrCreate(trigram(text, i));
+            if (list.size == 0 || list.values[list.size - 1] != slot) {
+                list.add(slot);
+            }
+        }
+    }
+
+    private static long trigram(String text, int i) {
+        return ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+    }
+
+    private static void collectTrigrams(String text, Set<Long> trigrams) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(trigram(text, i));
+        }
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        final Medicine medicine;
+        final String name;
+        final String genericName;
+        final String brand;
+
+        Entry(Medicine medicine) {
+            this.medicine = medicine;
+            this.name = lower(medicine.getName());
+            this.genericName = lower(medicine.getGenericName());
+            this.brand = lower(medicine.getBrand());
+        }
+
+        boolean sameText(Entry other) {
+            return name.equals(other.name) && genericName.equals(other.genericName) && brand.equals(other.brand);
+        }
+
+        // 0 = best, -1 = no match
+        int rank(String needle) {
+            int at = name.indexOf(needle);
+            if (at == 0) return 0;
+            if (at > 0) return startsWord(name, needle, at) ? 1 : 2;
+            if (genericName.startsWith(needle)) return 3;
+            if (genericName.contains(needle)) return 4;
+            if (brand.contains(needle)) return 5;
+            return -1;
+        }
+
+        private static boolean startsWord(String text, String needle, int from) {
+            for (int at = from; at >= 0; at = text.indexOf(needle, at + 1)) {
+                if (!Character.isLetterOrDigit(text.charAt(at - 1))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Open-addressing long -> IntList map, avoids boxing a Long for every trigram of every medicine
+    private static final class TrigramTable {
+        private long[] keys = new long[1024];
+        private IntList[] lists = new IntList[1024];
+        private int size;
+
+        IntList get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; lists[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return lists[i];
+                }
+            }
+            return null;
+        }
+
+        IntList getOrCreate(long key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            for (; lists[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return lists[i];
+                }
+            }
+            IntList list = new IntList();
+            keys[i] = key;
+            lists[i] = list;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return list;
+        }
+
+        void clear() {
+            Arrays.fill(lists, null);
+            size = 0;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            IntList[] oldLists = lists;
+            keys = new long[oldKeys.length * 2];
+            lists = new IntList[oldLists.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldLists[j] != null) {
+                    int i = hash(oldKeys[j]) & mask;
+                    while (lists[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    lists[i] = oldLists[j];
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    // Growable int array, cheaper than List<Integer> for posting lists
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -2,106 +2,90 @@ package utils;
 
 import java.awt.*;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import models.Invoice;
 import models.SaleItem;
+import utils.PdfWriter.Font;
 
 public class PDFGenerator {
 
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    // Layout in points, A4 with 50pt margins; the lines themselves come from InvoiceTemplate.
+    // 10pt Courier fits 82 characters between the margins, the default template is that wide.
+    private static final float LEFT = 50;
+    private static final float RIGHT = PdfWriter.PAGE_WIDTH - 50;
+    private static final float TOP = PdfWriter.PAGE_HEIGHT - 50;
+    private static final float BOTTOM = 60;            // lines stop here, the page number goes below
+    private static final float LINE = 14;
+    private static final float BODY = 10;
+    private static final float TITLE = 18;
+
+    // Render threads are pooled, so each keeps its writer and scratch buffer from one invoice to the next
+    private static final ThreadLocal<InvoiceRenderer> RENDERER = ThreadLocal.withInitial(InvoiceRenderer::new);
+
      //first we make a file with appropriate name
     public static String generateInvoiceFile(Invoice invoice) {
-        try {
-            String fileName = String.format("Invoice_%d_%s.txt",    //for example: Invoice_123_20231001_123456.txt
-                invoice.getId(), 
-                invoice.getCreatedAt().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")));
-            
-            String filePath = "invoices/" + fileName;
-            File file = new File(filePath);    //just create an object,not actual file
-            
-            return createInvoiceFile(invoice, file);    //this creates the actual file
-            
-        } catch (Exception e) {
-            System.err.println("Error generating invoice: " + e.getMessage());
-            e.printStackTrace();
-            return null;
-        }
+        return generateInvoiceFile(invoice, true);
     }
 
-    //now we write inside the file
-    private static String createInvoiceFile(Invoice invoice, File outputFile) {
+    // announce = false skips the "Invoice saved in" line, for callers writing many files (benchmarks, batch jobs)
+    public static String generateInvoiceFile(Invoice invoice, boolean announce) {
+        Path partial = null;
         try {
+            String fileName = getFileName(invoice);
+            Path file = Paths.get("invoices", fileName);
+            Files.createDirectories(file.getParent());        //first run has no invoices folder yet
 
-            StringBuilder invoiceContent = new StringBuilder();
-            
-            // Header
-            invoiceContent.append("=".repeat(80)).append("\n");
-            invoiceContent.append("                           INVOICE\n");
-            invoiceContent.append("=".repeat(80)).append("\n\n");
-            
-            // Invoice details
-            invoiceContent.append(String.format("Invoice ID: %d\n", invoice.getId()));
-            invoiceContent.append(String.format("Date: %s\n", 
-                invoice.getCreatedAt().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"))));
-            invoiceContent.append("\n");
-            
-            // Pharmacy details
-            invoiceContent.append("PHARMACY DETAILS:\n");
-            invoiceContent.append("-".repeat(50)).append("\n");
-            invoiceContent.append(String.format("Name: %s\n", invoice.getPharmacyName()));
-            invoiceContent.append(String.format("Area: %s\n", invoice.getPharmacyArea()));
-            
-            invoiceContent.append("\n");
-            
-            // Patient details
-            invoiceContent.append("PATIENT DETAILS:\n");
-            invoiceContent.append("-".repeat(50)).append("\n");
-            invoiceContent.append(String.format("Name: %s\n", invoice.getPatientName()));
-            invoiceContent.append(String.format("Phone: %s\n", invoice.getPatientPhone()));
-            
-            invoiceContent.append("\n");
-            
-            // Items
-            invoiceContent.append("MEDICINES:\n");
-            invoiceContent.append("-".repeat(80)).append("\n");
-            invoiceContent.append(String.format("%-30s %-15s %-8s %-12s %-12s\n", 
-                "Medicine", "Brand", "Qty", "Unit Price", "Subtotal"));
-            invoiceContent.append("-".repeat(80)).append("\n");
-            
-            // Items
-            for (SaleItem item : invoice.getItems()) {
-                invoiceContent.append(String.format("%-30s %-15s %-8d %-12.2f %-12.2f\n",
-                    item.getMedicine().getName(),
-                    item.getMedicine().getBrand(),
-                    item.getQuantity(),
-                    item.getMedicine().getPrice(),
-                    item.getSubtotal()));
+            // written next to the target and moved in place, so a crash never leaves half an invoice behind
+            partial = file.resolveSibling(fileName + ".part");
+            try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeInvoice(invoice, channel);
             }
-            
-            invoiceContent.append("-".repeat(80)).append("\n");
-            
-            // Total
-            invoiceContent.append(String.format("%60s Total: %.2f BDT\n", "", invoice.getTotalAmount()));
-            invoiceContent.append(String.format("%60s Items: %d\n", "", invoice.getTotalItems()));
-            
-            invoiceContent.append("\n");
-            invoiceContent.append("=".repeat(80)).append("\n");
-            invoiceContent.append("                     Thank you for your business!\n");
-            invoiceContent.append("=".repeat(80)).append("\n");
-            
-            // Write to file
-            try (FileWriter writer = new FileWriter(outputFile)) {
-                writer.write(invoiceContent.toString());        //.write() expects string, not stringbuilder
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            if (announce) {
+                System.out.println("Invoice saved in: " + file.toAbsolutePath());
+            }
+            return file.toAbsolutePath().toString();
+
+        } catch (Exception e) {
+            System.err.println("Error generating invoice: " + e.getMessage());
+            if (partial != null) {
+                try {
+                    Files.deleteIfExists(partial);      //a failed render or move must not leave the .part file behind
+                } catch (IOException cleanup) {
+                    System.err.println("Couldn't delete " + partial + ": " + cleanup.getMessage());
+                }
             }
-            
-            System.out.println("Invoice saved in: " + outputFile.getAbsolutePath());
-            return outputFile.getAbsolutePath();
-            
-        } catch (IOException e) {
-            System.err.println("Error writing invoice file: " + e.getMessage());
             return null;
         }
     }
 
+    // for example: Invoice_123_20231001_123456.pdf, also the entry name in exported archives
+    public static String getFileName(Invoice invoice) {
+        return String.format("Invoice_%d_%s.pdf", invoice.getId(), invoice.getCreatedAt().format(FILE_DATE));
+    }
+
+    // Streams the invoice as a PDF into any channel (a file, a zip entry, a socket), laid out with the
+    // pharmacy's template; the channel is left open
+    public static void writeInvoice(Invoice invoice, WritableByteChannel channel) throws IOException {
+        writeInvoice(invoice, InvoiceTemplate.forPharmacy(invoice.getPharmacyId()), channel);
+    }
+
+    public static void writeInvoice(Invoice invoice, InvoiceTemplate template, WritableByteChannel channel) throws IOException {
+        RENDERER.get().render(invoice, template, channel);
+    }
+
      //try to open the invoice automatically
     public static void openInvoiceFile(String filePath) {
         try {
@@ -116,4 +100,117 @@ public class PDFGenerator {
         }
     }
 
+
+    // Prints an invoice's template line by line, starting a new page whenever the next line won't fit;
+    // item rows are written as they are read, however many items there are
+    private static final class InvoiceRenderer {
+        private final PdfWriter pdf = new PdfWriter();
+        private final StringBuilder scratch = new StringBuilder(128);
+        private Invoice invoice;
+        private InvoiceTemplate template;
+        private float y;
+
+        void render(Invoice invoice, InvoiceTemplate template, WritableByteChannel channel) throws IOException {
+            this.invoice = invoice;
+            this.template = template;
+            try {
+                pdf.begin(channel);
+                pdf.beginPage();
+                y = TOP;
+
+                for (InvoiceTemplate.Line line : template.getHeader()) {
+                    print(line, null, 0);
+                }
+
+                if (template.getItemHeader() != null) {
+                    keepSpaceFor(2);
+                    print(template.getItemHeader(), null, 0);
+                }
+                List<InvoiceTemplate.Line> itemLines = template.getItemLines();
+                int itemNumber = 0;
+                for (SaleItem item : invoice.getItems()) {
+                    itemNumber++;
+                    keepSpaceFor(itemLines.size());
+                    for (int i = 0; i < itemLines.size(); i++) {     // indexed, an iterator per item adds up on long invoices
+                        print(itemLines.get(i), item, itemNumber);
+                    }
+                }
+
+                keepSpaceFor(template.getFooter().size());      // totals stay together on one page
+                for (InvoiceTemplate.Line line : template.getFooter()) {
+                    print(line, null, 0);
+                }
+
+                pageNumber();
+                pdf.endPage();
+                pdf.end();
+            } finally {
+                this.invoice = null;        // don't keep the last invoice alive in the pooled thread
+            }
+        }
+
+        private void print(InvoiceTemplate.Line line, SaleItem item, int itemNumber) throws IOException {
+            InvoiceTemplate.format(line, invoice, item, itemNumber, scratch);
+            switch (line.getStyle()) {
+                case TITLE:
+                    y -= TITLE - BODY;
+                    center(Font.BOLD, TITLE);
+                    y -= LINE;
+                    break;
+                case CENTER:
+                    center(Font.REGULAR, BODY);
+                    y -= LINE;
+                    break;
+                case RULE:
+                    pdf.line(LEFT, y + LINE - 4, RIGHT, y + LINE - 4, 0.5f);
+                    y -= 4;
+                    break;
+                case BOLD:
+                    text(Font.BOLD);
+                    y -= LINE;
+                    break;
+                default:
+                    text(Font.REGULAR);
+                    y -= LINE;
+                    break;
+            }
+        }
+
+        // Breaks the page if the next lines wouldn't fit; a new page starts with the continuation line and table header
+        private void keepSpaceFor(int lines) throws IOException {
+            float needed = Math.min(lines, (TOP - BOTTOM) / LINE - 4) * LINE;
+            if (y - needed + LINE >= BOTTOM) {
+                return;
+            }
+            pageNumber();
+            pdf.endPage();
+            pdf.beginPage();
+            y = TOP;
+            if (template.getContinued() != null) {
+                print(template.getContinued(), null, 0);
+                y -= LINE;
+            }
+            if (template.getItemHeader() != null) {
+                print(template.getItemHeader(), null, 0);
+            }
+        }
+
+        private void text(Font font) throws IOException {
+            if (scratch.length() > 0) {
+                pdf.text(font, BODY, LEFT, y, scratch);
+            }
+        }
+
+        private void center(Font font, float size) throws IOException {
+            if (scratch.length() > 0) {
+                pdf.text(font, size, (PdfWriter.PAGE_WIDTH - PdfWriter.textWidth(size, scratch.length())) / 2, y, scratch);
+            }
+        }
+
+        private void pageNumber() throws IOException {
+            scratch.setLength(0);
+            scratch.append("Page ").append(pdf.getPageCount() + 1);
+            pdf.text(Font.REGULAR, 8, (PdfWriter.PAGE_WIDTH - PdfWriter.textWidth(8, scratch.length())) / 2, 30, scratch);
+        }
+    }
 }
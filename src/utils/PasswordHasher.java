@@ -0,0 +1,149 @@
+package utils;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * PasswordHasher - Salted PBKDF2-HMAC-SHA256 password hashes.
+ * A stored hash carries its own cost, so the cost can be raised at any time: old hashes still verify
+ * and needsRehash() tells the login path to store a fresh one.
+ *
+ *   pbkdf2-sha256$<iterations>$<base64 salt>$<base64 hash>
+ *
+ * Rows from before this format (unsalted SHA-256 hex, or the password itself) still verify, and
+ * always need a rehash. Comparisons are constant-time.
+ *
+ * Cost from -Dpharmapoint.auth.iterations (default 600000, about a quarter second per hash)
+ */
+public class PasswordHasher {
+
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+    private static final int MIN_ITERATIONS = 1000;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static volatile int iterations = Math.max(MIN_ITERATIONS, Integer.getInteger("pharmapoint.auth.iterations", 600_000));
+
+    // Checked against when the email is unknown, so a failed login takes as long either way
+    private static volatile String dummyHash;
+
+    public static String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        int cost = iterations;
+        byte[] hash = pbkdf2(password, salt, cost, HASH_BYTES);
+        return PREFIX + cost + '$' + Base64.getEncoder().encodeToString(salt) + '$' + Base64.getEncoder().encodeToString(hash);
+    }
+
+    public static boolean verify(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!stored.startsWith(PREFIX)) {
+            // legacy rows: SHA-256 hex from the first version of sign-up, or plain text from before that.
+            // A hex row only takes the password, never the hex itself, so a leaked hash isn't a login
+            return isSha256Hex(stored) ? constantTimeEquals(sha256Hex(password), stored) : constantTimeEquals(password, stored);
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int cost = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            if (cost < 1 || expected.length == 0) {
+                return false;
+            }
+            return MessageDigest.isEqual(pbkdf2(password, salt, cost, expected.length), expected);
+        } catch (IllegalArgumentException e) {
+            return false;       // corrupt row, never matches
+        }
+    }
+
+    // True for legacy rows and for hashes cheaper than the current cost
+    public static boolean needsRehash(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX)) {
+            return true;
+        }
+        int end = stored.indexOf('$', PREFIX.length());
+        try {
+            return end < 0 || Integer.parseInt(stored.substring(PREFIX.length(), end)) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    // Burns the same time as a real check, for logins with an unknown email
+    public static void verifyDummy(String password) {
+        String dummy = dummyHash;
+        if (dummy == null || needsRehash(dummy)) {
+            dummy = hash("not a password");
+            dummyHash = dummy;
+        }
+        verify(password, dummy);
+    }
+
+    public static int getIterations() {
+        return iterations;
+    }
+
+    // For benchmarks and tuning; hashes made from now on use the new cost
+    public static void setIterations(int newIterations) {
+        iterations = Math.max(MIN_ITERATIONS, newIterations);
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int cost, int length) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, cost, length * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static String sha256Hex(String password) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    private static boolean isSha256Hex(String stored) {
+        if (stored.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < stored.length(); i++) {
+            if (Character.digit(stored.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean constantTimeEquals(String a, String b) {
+        byte[] left = a.getBytes(StandardCharsets.UTF_8);
+        byte[] right = b.getBytes(StandardCharsets.UTF_8);
+        boolean equal = MessageDigest.isEqual(left, right);
+        Arrays.fill(left, (byte) 0);
+        Arrays.fill(right, (byte) 0);
+        return equal;
+    }
+}
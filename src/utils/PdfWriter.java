@@ -0,0 +1,331 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * PdfWriter - Minimal streaming PDF 1.4 writer for text documents.
+ * Everything goes through one fixed ByteBuffer that is flushed to the channel whenever it fills up,
+ * so neither a page nor the document is ever held in memory. Content streams get their /Length as
+ * a separate object written after the stream, which is what lets a page be streamed before its size
+ * is known. Only the built-in Courier fonts are used, so no font data is embedded and text width is
+ * simply 0.6 * size per character.
+ *
+ * One writer can be reused for many documents (reset with begin()); it is not thread-safe.
+ *
+ *   writer.begin(channel);
+ *   writer.beginPage();
+ *   writer.text(PdfWriter.Font.BOLD, 16, 50, 800, "INVOICE");
+ *   writer.endPage();
+ *   writer.end();
+ */
+public class PdfWriter {
+
+    public enum Font {
+        REGULAR("F1", "Courier"),
+        BOLD("F2", "Courier-Bold");
+
+        private final byte[] resourceName;
+        private final String baseFont;
+
+        Font(String resourceName, String baseFont) {
+            this.resourceName = ascii("/" + resourceName);
+            this.baseFont = baseFont;
+        }
+    }
+
+    public static final float PAGE_WIDTH = 595;      // A4 in points
+    public static final float PAGE_HEIGHT = 842;
+
+    // Objects 1-4 are the same in every document and written in end(); pages start at 5
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FIRST_FONT = 3;
+    private static final int FIRST_FREE_OBJECT = FIRST_FONT + Font.values().length;
+
+    private static final byte[] HEADER = ascii("%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n");     // binary marker line, tools then don't treat the file as text
+    private static final byte[] PAGE_RESOURCES = ascii(" 0 R /MediaBox [0 0 595 842] /Resources << /Font << /F1 3 0 R /F2 4 0 R >> >> /Contents ");
+    private static final byte[][] FONT_OBJECTS = new byte[Font.values().length][];
+
+    static {
+        for (Font font : Font.values()) {
+            FONT_OBJECTS[font.ordinal()] = ascii("<< /Type /Font /Subtype /Type1 /BaseFont /" + font.baseFont
+                    + " /Encoding /WinAnsiEncoding >>");
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private WritableByteChannel channel;
+    private long position;                  // bytes written to the channel plus what's in the buffer
+    private long[] offsets = new long[64];  // object number -> byte offset, for the xref table
+    private int nextObject;
+    private int[] pageObjects = new int[16];
+    private int pageCount;
+
+    // Current page
+    private int lengthObject;
+    private long streamStart;
+    private boolean inText;
+    private Font currentFont;
+    private float currentSize;
+
+    public PdfWriter() {
+        this(64 * 1024);
+    }
+
+    public PdfWriter(int bufferSize) {
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    public void begin(WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        buffer.clear();
+        position = 0;
+        nextObject = FIRST_FREE_OBJECT;
+        pageCount = 0;
+        Arrays.fill(offsets, 0);
+        write(HEADER);
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public void beginPage() throws IOException {
+        int contentObject = nextObject++;
+        lengthObject = nextObject++;
+        startObject(contentObject);
+        write("<< /Length ");
+        writeInt(lengthObject);
+        write(" 0 R >>\nstream\n");
+        streamStart = position;
+        inText = false;
+        currentFont = null;
+    }
+
+    public void endPage() throws IOException {
+        endText();
+        long length = position - streamStart;
+        write("\nendstream\nendobj\n");
+        int contentObject = lengthObject - 1;
+
+        startObject(lengthObject);
+        writeLong(length);
+        write("\nendobj\n");
+
+        int pageObject = nextObject++;
+        startObject(pageObject);
+        write("<< /Type /Page /Parent ");
+        writeInt(PAGES);
+        write(PAGE_RESOURCES);
+        writeInt(contentObject);
+        write(" 0 R >>\nendobj\n");
+
+        if (pageCount == pageObjects.length) {
+            pageObjects = Arrays.copyOf(pageObjects, pageCount * 2);
+        }
+        pageObjects[pageCount++] = pageObject;
+    }
+
+    // Draws text with its baseline starting at (x, y); characters outside Latin-1 print as '?'
+    public void text(Font font, float size, float x, float y, CharSequence text) throws IOException {
+        if (!inText) {
+            write("BT\n");
+            inText = true;
+        }
+        if (font != currentFont || size != currentSize) {
+            write(font.resourceName);
+            write(' ');
+            writeNumber(size);
+            write(" Tf\n");
+            currentFont = font;
+            currentSize = size;
+        }
+        write("1 0 0 1 ");
+        writeNumber(x);
+        write(' ');
+        writeNumber(y);
+        write(" Tm (");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                write('\\');
+                write((byte) c);
+            } else if (c < 32 || (c >= 127 && c < 160) || c > 255) {
+                write('?');
+            } else {
+                write((byte) c);
+            }
+        }
+        write(") Tj\n");
+    }
+
+    // Same as text() but the text ends at rightX
+    public void textRight(Font font, float size, float rightX, float y, CharSequence text) throws IOException {
+        text(font, size, rightX - textWidth(size, text.length()), y, text);
+    }
+
+    public static float textWidth(float size, int characters) {
+        return characters * size * 0.6f;        // every Courier glyph is 600/1000 em wide
+    }
+
+    public void line(float x1, float y1, float x2, float y2, float width) throws IOException {
+        endText();
+        writeNumber(width);
+        write(" w ");
+        writeNumber(x1);
+        write(' ');
+        writeNumber(y1);
+        write(" m ");
+        writeNumber(x2);
+        write(' ');
+        writeNumber(y2);
+        write(" l S\n");
+    }
+
+    // Writes the shared objects, the page tree and the xref table, then flushes; the channel stays open
+    public void end() throws IOException {
+        for (Font font : Font.values()) {
+            startObject(FIRST_FONT + font.ordinal());
+            write(FONT_OBJECTS[font.ordinal()]);
+            write("\nendobj\n");
+        }
+
+        startObject(PAGES);
+        write("<< /Type /Pages /Count ");
+        writeInt(pageCount);
+        write(" /Kids [");
+        for (int i = 0; i < pageCount; i++) {
+            writeInt(pageObjects[i]);
+            write(" 0 R ");
+        }
+        write("] >>\nendobj\n");
+
+        startObject(CATALOG);
+        write("<< /Type /Catalog /Pages ");
+        writeInt(PAGES);
+        write(" 0 R >>\nendobj\n");
+
+        long xref = position;
+        write("xref\n0 ");
+        writeInt(nextObject);
+        write("\n0000000000 65535 f \n");
+        for (int object = 1; object < nextObject; object++) {
+            writePadded(offsets[object], 10);
+            write(" 00000 n \n");
+        }
+        write("trailer\n<< /Size ");
+        writeInt(nextObject);
+        write(" /Root ");
+        writeInt(CATALOG);
+        write(" 0 R >>\nstartxref\n");
+        writeLong(xref);
+        write("\n%%EOF\n");
+        flush();
+        channel = null;
+    }
+
+    private void startObject(int object) throws IOException {
+        if (object >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(object + 1, offsets.length * 2));
+        }
+        offsets[object] = position;
+        writeInt(object);
+        write(" 0 obj\n");
+    }
+
+    private void endText() throws IOException {
+        if (inText) {
+            write("ET\n");
+            inText = false;
+            currentFont = null;
+        }
+    }
+
+    // Low-level output, nothing below allocates
+
+    private void write(byte b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put(b);
+        position++;
+    }
+
+    private void write(char c) throws IOException {
+        write((byte) c);
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        for (byte b : bytes) {
+            write(b);
+        }
+    }
+
+    // Only for the ASCII literals in this class
+    private void write(String ascii) throws IOException {
+        for (int i = 0; i < ascii.length(); i++) {
+            write((byte) ascii.charAt(i));
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        writeLong(value);
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value < 0) {
+            write('-');
+            value = -value;
+        }
+        if (value >= 10) {
+            writeLong(value / 10);
+        }
+        write((byte) ('0' + value % 10));
+    }
+
+    private void writePadded(long value, int digits) throws IOException {
+        for (long limit = 10; digits > 1; digits--, limit *= 10) {
+            if (value < limit) {
+                write('0');
+            }
+        }
+        writeLong(value);
+    }
+
+    // Coordinates and sizes, at most two decimals
+    private void writeNumber(float value) throws IOException {
+        long hundredths = Math.round(value * 100.0);
+        if (hundredths < 0) {
+            write('-');
+            hundredths = -hundredths;
+        }
+        writeLong(hundredths / 100);
+        long fraction = hundredths % 100;
+        if (fraction != 0) {
+            write('.');
+            write((byte) ('0' + fraction / 10));
+            if (fraction % 10 != 0) {
+                write((byte) ('0' + fraction % 10));
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static byte[] ascii(String text) {
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) text.charAt(i);
+        }
+        return bytes;
+    }
+}
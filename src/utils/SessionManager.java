@@ -1,36 +1,60 @@
 package utils;
 
+import models.Session;
 import models.User;
+import services.SessionStore;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * SessionManager - Manages user session state across the application
- * Provides static methods to store and retrieve the currently logged-in user
+ * Provides static methods to store and retrieve the currently logged-in user.
+ * The desktop window's login is one session in the shared SessionStore, held here by its token,
+ * so it expires and is logged out the same way as any other counter's session.
  */
 public class SessionManager {
     
-    private static User currentUser;
+    // a counter stays logged in for a shift even while idle, unless told otherwise with -Dpharmapoint.session.desktopTtlHours
+    private static final long DESKTOP_TTL_MILLIS = TimeUnit.HOURS.toMillis(Long.getLong("pharmapoint.session.desktopTtlHours", 12L));
+    
+    private static volatile String currentToken;
+    
+    public static void setCurrentSession(Session session) {
+        String previous = currentToken;
+        currentToken = session != null ? session.getToken() : null;
+        if (previous != null && !previous.equals(currentToken)) {
+            SessionStore.getShared().revoke(previous);
+        }
+    }
     
     public static void setCurrentUser(User user) {
-        currentUser = user;
+        setCurrentSession(user != null ? SessionStore.getShared().issue(user, DESKTOP_TTL_MILLIS) : null);
     }
     
     public static User getCurrentUser() {
-        return currentUser;
+        String token = currentToken;
+        return token != null ? SessionStore.getShared().getUser(token) : null;
+    }
+    
+    public static String getCurrentToken() {
+        return currentToken;
     }
     
     public static boolean isUserLoggedIn() {
-        return currentUser != null;
+        return getCurrentUser() != null;
     }
     
     public static void clearSession() {
-        currentUser = null;
+        setCurrentSession(null);
     }
     
     public static String getCurrentUserRole() {
+        User currentUser = getCurrentUser();
         return currentUser != null ? currentUser.getRole() : null;
     }
     
     public static boolean hasRole(String role) {
+        User currentUser = getCurrentUser();
         return currentUser != null && role.equals(currentUser.getRole());
     }
 }
@@ -105,6 +105,35 @@ public class Validator {
         return false;
     }
     
+    // Same rules as the add medicine form, for one imported row; "" when valid, otherwise the reason.
+    // zeroQuantityAllowed is for stock counts, where 0 means the shelf is empty
+    public static String getMedicineRowError(String name, String genericName, String brand, String priceText,
+                                             String quantityText, String expiryDate, boolean zeroQuantityAllowed) {
+        if (!isNotEmpty(name)) return "Name is required.";
+        if (!isNotEmpty(genericName)) return "Generic name is required.";
+        if (!isNotEmpty(brand)) return "Brand is required.";
+        if (!isValidNumber(priceText, true)) return "Price must be a positive number.";
+        if (zeroQuantityAllowed) {
+            if (!isValidInteger(quantityText, false) || Integer.parseInt(quantityText.trim()) < 0) {
+                return "Quantity must be zero or a positive whole number.";
+            }
+        } else if (!isValidInteger(quantityText, true)) {
+            return "Quantity must be a positive whole number.";
+        }
+        if (!isValidDateFormat(expiryDate)) return "Expiry date must be in YYYY-MM-DD format.";
+        return "";
+    }
+
+    public static boolean isValidInteger(String value, boolean mustBePositive) {
+        if (!isNotEmpty(value)) return false;
+        try {
+            int number = Integer.parseInt(value.trim());
+            return !mustBePositive || number > 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+    
     public static boolean validatePharmacyForm(String userId, String name, String address, String area) {
         if (isNotEmpty(name) && isNotEmpty(address) && isNotEmpty(area) && isNotEmpty(userId)) {
             return isValidNumber(userId, true);